@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * Data sources that benchmarks are executed against.
+ *
+ * @author Dariusz Szwarc
+ */
+public enum Backend {
+
+    /**
+     * Embedded in-process H2 database.
+     */
+    H2 {
+        @Override
+        DataSource create(int rows) throws SQLException {
+            var dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:bench" + rows + ";DB_CLOSE_DELAY=-1");
+            try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS item");
+                statement.execute("CREATE TABLE item (id BIGINT PRIMARY KEY, name VARCHAR(64), amount DOUBLE)");
+                statement.execute("INSERT INTO item SELECT x, 'name' || x, x * 0.5 FROM system_range(1, " + rows
+                        + ")");
+            }
+            return dataSource;
+        }
+    },
+
+    /**
+     * Stub that returns fixed results without touching any database.
+     */
+    STUB {
+        @Override
+        DataSource create(int rows) {
+            return StubDataSource.create(rows);
+        }
+    };
+
+    /**
+     * Creates a data source with provided number of rows in table {@code item}.
+     *
+     * @param rows Number of rows in the table.
+     * @return Created data source.
+     * @throws SQLException When data source can not be prepared.
+     */
+    abstract DataSource create(int rows) throws SQLException;
+}
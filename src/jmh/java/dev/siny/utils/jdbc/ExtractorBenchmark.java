@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Benchmarks of {@link Extractor}s processing a stub result set.
+ *
+ * @author Dariusz Szwarc
+ */
+@State(Scope.Benchmark)
+public class ExtractorBenchmark {
+
+    /**
+     * Number of rows in result set.
+     */
+    @Param({"1", "100", "100000"})
+    public int rows;
+
+    private PreparedStatement statement;
+
+    private Extractor<Optional<Item>> extractOne;
+
+    private Extractor<List<Item>> extractMany;
+
+    /**
+     * Prepares extractors and stub statement.
+     *
+     * @throws SQLException When stub statement can not be prepared.
+     */
+    @Setup
+    public void setUp() throws SQLException {
+        statement = Backend.STUB.create(rows).getConnection().prepareStatement(Item.SELECT_ALL);
+        extractOne = Extractor.extractOne(Item.MAPPER, Handler.returning(e -> Optional.empty()));
+        extractMany = Extractor.extractMany(Item.MAPPER, Handler.returning(e -> Collections.emptyList()));
+    }
+
+    @Benchmark
+    public Optional<Item> extractOne() throws SQLException {
+        return extractOne.process(statement.executeQuery());
+    }
+
+    @Benchmark
+    public List<Item> extractMany() throws SQLException {
+        return extractMany.process(statement.executeQuery());
+    }
+
+    @Benchmark
+    public List<Item> rawLoop() throws SQLException {
+        var resultSet = statement.executeQuery();
+        List<Item> items = new ArrayList<>();
+        while (resultSet.next()) {
+            items.add(Item.map(resultSet));
+        }
+        return items;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Row of table {@code item} used by benchmarks.
+ *
+ * @author Dariusz Szwarc
+ */
+final class Item {
+
+    /**
+     * Mapper of item rows.
+     */
+    static final RowMapper<Item> MAPPER = Item::map;
+
+    /**
+     * Query selecting all items.
+     */
+    static final String SELECT_ALL = "SELECT id, name, amount FROM item";
+
+    /**
+     * Query selecting item by id.
+     */
+    static final String SELECT_BY_ID = "SELECT id, name, amount FROM item WHERE id = ?";
+
+    /**
+     * Update changing amount of item by id.
+     */
+    static final String UPDATE_AMOUNT = "UPDATE item SET amount = ? WHERE id = ?";
+
+    private final long id;
+
+    private final String name;
+
+    private final double amount;
+
+    private Item(long id, String name, double amount) {
+        this.id = id;
+        this.name = name;
+        this.amount = amount;
+    }
+
+    /**
+     * Maps current row of result set.
+     *
+     * @param resultSet Result set, positioned at row to be mapped.
+     * @return Mapped item.
+     * @throws SQLException when result set raises an exception during processing.
+     */
+    static Item map(ResultSet resultSet) throws SQLException {
+        return new Item(resultSet.getLong(1), resultSet.getString(2), resultSet.getDouble(3));
+    }
+
+    @Override
+    public String toString() {
+        return id + " " + name + " " + amount;
+    }
+}
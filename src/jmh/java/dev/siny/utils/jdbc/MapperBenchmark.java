@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.invoke.MethodHandles;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Benchmarks of {@link RowMapper#forBean(Class, MethodHandles.Lookup)} against a hand-written mapper, mapping rows of
+ * a stub result set. Records are not benchmarked, because the benchmarks are compiled without preview features.
+ *
+ * @author Dariusz Szwarc
+ */
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    /**
+     * Number of rows in result set.
+     */
+    @Param({"1", "100", "100000"})
+    public int rows;
+
+    private PreparedStatement statement;
+
+    private RowMapper<Bean> bean;
+
+    /**
+     * Prepares mapper and stub statement.
+     *
+     * @throws SQLException When stub statement can not be prepared.
+     */
+    @Setup
+    public void setUp() throws SQLException {
+        statement = Backend.STUB.create(rows).getConnection().prepareStatement(Item.SELECT_ALL);
+        bean = RowMapper.forBean(Bean.class, MethodHandles.lookup());
+    }
+
+    @Benchmark
+    public List<Item> lambda() throws SQLException {
+        var resultSet = statement.executeQuery();
+        var mapper = Item.MAPPER.bind(resultSet);
+        List<Item> items = new ArrayList<>();
+        while (resultSet.next()) {
+            items.add(mapper.map(resultSet));
+        }
+        return items;
+    }
+
+    @Benchmark
+    public List<Bean> bean() throws SQLException {
+        var resultSet = statement.executeQuery();
+        var mapper = bean.bind(resultSet);
+        List<Bean> beans = new ArrayList<>();
+        while (resultSet.next()) {
+            beans.add(mapper.map(resultSet));
+        }
+        return beans;
+    }
+
+    @Benchmark
+    public List<Bean> unboundBean() throws SQLException {
+        var resultSet = statement.executeQuery();
+        List<Bean> beans = new ArrayList<>();
+        while (resultSet.next()) {
+            beans.add(bean.map(resultSet));
+        }
+        return beans;
+    }
+
+    /**
+     * Bean with the columns of {@link Item}.
+     */
+    public static final class Bean {
+
+        private long id;
+
+        private String name;
+
+        private double amount;
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public void setAmount(double amount) {
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Benchmarks comparing pre-compiled {@link Query} and {@link Update} with ad-hoc operations. Allocation rate reported
+ * by the gc profiler should not exceed the one of {@link SingleRowBenchmark#rawFetchOne()} and
+ * {@link SingleRowBenchmark#rawUpdate()} on the same backend.
+ *
+ * @author Dariusz Szwarc
+ */
+@State(Scope.Thread)
+public class PreparedQueryBenchmark {
+
+    /**
+     * Data source the benchmarks are executed against.
+     */
+    @Param({"H2", "STUB"})
+    public Backend backend;
+
+    private DataSourceHelper helper;
+
+    private Query<Item> query;
+
+    private Parameters queryParameters;
+
+    private Update update;
+
+    private Parameters updateParameters;
+
+    /**
+     * Prepares data source, query and update.
+     *
+     * @throws SQLException When data source can not be prepared.
+     */
+    @Setup
+    public void setUp() throws SQLException {
+        helper = DataSourceHelper.create(backend.create(100));
+        query = Query.of(helper, "SELECT id, name, amount FROM item WHERE id = :id", Item.MAPPER);
+        queryParameters = query.parameters().setLong("id", 42);
+        update = Update.of(helper, "UPDATE item SET amount = :amount WHERE id = :id");
+        updateParameters = update.parameters().setDouble("amount", 1.5).setLong("id", 42);
+    }
+
+    @Benchmark
+    public Optional<Item> adHocFetchOne() {
+        return helper.fetchOne(Item.SELECT_BY_ID, Item.MAPPER, 42L);
+    }
+
+    @Benchmark
+    public Optional<Item> queryFetchOne() {
+        return query.fetchOne(queryParameters);
+    }
+
+    @Benchmark
+    public int adHocUpdate() {
+        return helper.update(Item.UPDATE_AMOUNT, 1.5, 42L);
+    }
+
+    @Benchmark
+    public int preparedUpdate() {
+        return update.execute(updateParameters);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Benchmarks of creating and applying {@link Setter}s of different arities on a stub statement.
+ *
+ * @author Dariusz Szwarc
+ */
+@State(Scope.Benchmark)
+public class SetterBenchmark {
+
+    /**
+     * Number of set parameters.
+     */
+    @Param({"0", "1", "2", "5", "10"})
+    public int arity;
+
+    private Object[] parameters;
+
+    private PreparedStatement statement;
+
+    /**
+     * Prepares parameters and stub statement.
+     *
+     * @throws SQLException When stub statement can not be prepared.
+     */
+    @Setup
+    public void setUp() throws SQLException {
+        parameters = new Object[arity];
+        for (int i = 0; i < arity; i++) {
+            parameters[i] = (long) i;
+        }
+        statement = Backend.STUB.create(0).getConnection().prepareStatement(Item.SELECT_ALL);
+    }
+
+    @Benchmark
+    public PreparedStatement forParameters() throws SQLException {
+        Setter.forParameters(parameters).setup(statement);
+        return statement;
+    }
+
+    @Benchmark
+    public PreparedStatement rawSetObject() throws SQLException {
+        for (int i = 0; i < parameters.length; i++) {
+            statement.setObject(i + 1, parameters[i]);
+        }
+        return statement;
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * Connection of {@link StubDataSource}. Every prepared statement is the same stub statement.
+ *
+ * @author Dariusz Szwarc
+ */
+final class StubConnection implements Connection {
+
+    /**
+     * Statement returned by every call.
+     */
+    private final StubPreparedStatement statement;
+
+    /**
+     * Creates instance of StubConnection.
+     *
+     * @param statement Statement returned by every call.
+     */
+    StubConnection(StubPreparedStatement statement) {
+        this.statement = statement;
+    }
+
+    @Override
+    public Statement createStatement() {
+        return null;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql) {
+        return statement;
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql) {
+        return null;
+    }
+
+    @Override
+    public String nativeSQL(String sql) {
+        return null;
+    }
+
+    @Override
+    public void setAutoCommit(boolean autoCommit) {
+    }
+
+    @Override
+    public boolean getAutoCommit() {
+        return true;
+    }
+
+    @Override
+    public void commit() {
+    }
+
+    @Override
+    public void rollback() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public boolean isClosed() {
+        return false;
+    }
+
+    @Override
+    public DatabaseMetaData getMetaData() {
+        return null;
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) {
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    @Override
+    public void setCatalog(String catalog) {
+    }
+
+    @Override
+    public String getCatalog() {
+        return null;
+    }
+
+    @Override
+    public void setTransactionIsolation(int level) {
+    }
+
+    @Override
+    public int getTransactionIsolation() {
+        return 0;
+    }
+
+    @Override
+    public SQLWarning getWarnings() {
+        return null;
+    }
+
+    @Override
+    public void clearWarnings() {
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency) {
+        return null;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency) {
+        return statement;
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency) {
+        return null;
+    }
+
+    @Override
+    public Map<String, Class<?>> getTypeMap() {
+        return null;
+    }
+
+    @Override
+    public void setTypeMap(Map<String, Class<?>> map) {
+    }
+
+    @Override
+    public void setHoldability(int holdability) {
+    }
+
+    @Override
+    public int getHoldability() {
+        return 0;
+    }
+
+    @Override
+    public Savepoint setSavepoint() {
+        return null;
+    }
+
+    @Override
+    public Savepoint setSavepoint(String name) {
+        return null;
+    }
+
+    @Override
+    public void rollback(Savepoint savepoint) {
+    }
+
+    @Override
+    public void releaseSavepoint(Savepoint savepoint) {
+    }
+
+    @Override
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability) {
+        return null;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) {
+        return statement;
+    }
+
+    @Override
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability) {
+        return null;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) {
+        return statement;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes) {
+        return statement;
+    }
+
+    @Override
+    public PreparedStatement prepareStatement(String sql, String[] columnNames) {
+        return statement;
+    }
+
+    @Override
+    public Clob createClob() {
+        return null;
+    }
+
+    @Override
+    public Blob createBlob() {
+        return null;
+    }
+
+    @Override
+    public NClob createNClob() {
+        return null;
+    }
+
+    @Override
+    public SQLXML createSQLXML() {
+        return null;
+    }
+
+    @Override
+    public boolean isValid(int timeout) {
+        return false;
+    }
+
+    @Override
+    public void setClientInfo(String name, String value) {
+    }
+
+    @Override
+    public void setClientInfo(Properties properties) {
+    }
+
+    @Override
+    public String getClientInfo(String name) {
+        return null;
+    }
+
+    @Override
+    public Properties getClientInfo() {
+        return null;
+    }
+
+    @Override
+    public Array createArrayOf(String typeName, Object[] elements) {
+        return null;
+    }
+
+    @Override
+    public Struct createStruct(String typeName, Object[] attributes) {
+        return null;
+    }
+
+    @Override
+    public void setSchema(String schema) {
+    }
+
+    @Override
+    public String getSchema() {
+        return null;
+    }
+
+    @Override
+    public void abort(Executor executor) {
+    }
+
+    @Override
+    public void setNetworkTimeout(Executor executor, int milliseconds) {
+    }
+
+    @Override
+    public int getNetworkTimeout() {
+        return 0;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) {
+        return null;
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+}
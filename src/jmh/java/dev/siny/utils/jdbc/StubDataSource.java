@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.util.logging.Logger;
+
+/**
+ * Data source that does not touch any database. Every query returns a fixed number of rows with columns
+ * {@code id BIGINT, name VARCHAR, amount DOUBLE} and every update affects a single row. Objects are created once and
+ * reused, and the stubs are plain classes whose methods neither allocate nor box primitive results, so measurements
+ * on the stub, including {@code -prof gc}, show only the overhead of the library.
+ *
+ * @author Dariusz Szwarc
+ */
+final class StubDataSource implements DataSource {
+
+    /**
+     * Connection returned by every call.
+     */
+    private final StubConnection connection;
+
+    /**
+     * Creates instance of StubDataSource.
+     *
+     * @param rows Number of rows returned by every query.
+     */
+    private StubDataSource(int rows) {
+        this.connection = new StubConnection(new StubPreparedStatement(new StubResultSet(rows)));
+    }
+
+    /**
+     * Creates a stub data source.
+     *
+     * @param rows Number of rows returned by every query.
+     * @return Created data source.
+     */
+    static DataSource create(int rows) {
+        return new StubDataSource(rows);
+    }
+
+    @Override
+    public Connection getConnection() {
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) {
+        return connection;
+    }
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return 0;
+    }
+
+    @Override
+    public Logger getParentLogger() {
+        return null;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) {
+        return null;
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+}
@@ -0,0 +1,505 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Calendar;
+
+/**
+ * Prepared statement of {@link StubDataSource}. Every query returns the same stub result set, rewound to its first
+ * row, and every update affects a single row.
+ *
+ * @author Dariusz Szwarc
+ */
+final class StubPreparedStatement implements PreparedStatement {
+
+    /**
+     * Update counts returned by every batch.
+     */
+    private static final int[] NO_COUNTS = new int[0];
+
+    /**
+     * Result set returned by every query.
+     */
+    private final StubResultSet resultSet;
+
+    /**
+     * Creates instance of StubPreparedStatement.
+     *
+     * @param resultSet Result set returned by every query.
+     */
+    StubPreparedStatement(StubResultSet resultSet) {
+        this.resultSet = resultSet;
+    }
+
+    @Override
+    public ResultSet executeQuery() {
+        return resultSet.reset();
+    }
+
+    @Override
+    public int executeUpdate() {
+        return 1;
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType) {
+    }
+
+    @Override
+    public void setBoolean(int parameterIndex, boolean x) {
+    }
+
+    @Override
+    public void setByte(int parameterIndex, byte x) {
+    }
+
+    @Override
+    public void setShort(int parameterIndex, short x) {
+    }
+
+    @Override
+    public void setInt(int parameterIndex, int x) {
+    }
+
+    @Override
+    public void setLong(int parameterIndex, long x) {
+    }
+
+    @Override
+    public void setFloat(int parameterIndex, float x) {
+    }
+
+    @Override
+    public void setDouble(int parameterIndex, double x) {
+    }
+
+    @Override
+    public void setBigDecimal(int parameterIndex, BigDecimal x) {
+    }
+
+    @Override
+    public void setString(int parameterIndex, String x) {
+    }
+
+    @Override
+    public void setBytes(int parameterIndex, byte[] x) {
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x) {
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x) {
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x) {
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, int length) {
+    }
+
+    @Deprecated
+    @Override
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length) {
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, int length) {
+    }
+
+    @Override
+    public void clearParameters() {
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType) {
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x) {
+    }
+
+    @Override
+    public boolean execute() {
+        return false;
+    }
+
+    @Override
+    public void addBatch() {
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, int length) {
+    }
+
+    @Override
+    public void setRef(int parameterIndex, Ref x) {
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, Blob x) {
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Clob x) {
+    }
+
+    @Override
+    public void setArray(int parameterIndex, Array x) {
+    }
+
+    @Override
+    public ResultSetMetaData getMetaData() {
+        return null;
+    }
+
+    @Override
+    public void setDate(int parameterIndex, Date x, Calendar cal) {
+    }
+
+    @Override
+    public void setTime(int parameterIndex, Time x, Calendar cal) {
+    }
+
+    @Override
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal) {
+    }
+
+    @Override
+    public void setNull(int parameterIndex, int sqlType, String typeName) {
+    }
+
+    @Override
+    public void setURL(int parameterIndex, URL x) {
+    }
+
+    @Override
+    public ParameterMetaData getParameterMetaData() {
+        return null;
+    }
+
+    @Override
+    public void setRowId(int parameterIndex, RowId x) {
+    }
+
+    @Override
+    public void setNString(int parameterIndex, String value) {
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value, long length) {
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, NClob value) {
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader, long length) {
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream, long length) {
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader, long length) {
+    }
+
+    @Override
+    public void setSQLXML(int parameterIndex, SQLXML xmlObject) {
+    }
+
+    @Override
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength) {
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x, long length) {
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x, long length) {
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader, long length) {
+    }
+
+    @Override
+    public void setAsciiStream(int parameterIndex, InputStream x) {
+    }
+
+    @Override
+    public void setBinaryStream(int parameterIndex, InputStream x) {
+    }
+
+    @Override
+    public void setCharacterStream(int parameterIndex, Reader reader) {
+    }
+
+    @Override
+    public void setNCharacterStream(int parameterIndex, Reader value) {
+    }
+
+    @Override
+    public void setClob(int parameterIndex, Reader reader) {
+    }
+
+    @Override
+    public void setBlob(int parameterIndex, InputStream inputStream) {
+    }
+
+    @Override
+    public void setNClob(int parameterIndex, Reader reader) {
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) {
+        return resultSet.reset();
+    }
+
+    @Override
+    public int executeUpdate(String sql) {
+        return 1;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public int getMaxFieldSize() {
+        return 0;
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) {
+    }
+
+    @Override
+    public int getMaxRows() {
+        return 0;
+    }
+
+    @Override
+    public void setMaxRows(int max) {
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) {
+    }
+
+    @Override
+    public int getQueryTimeout() {
+        return 0;
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) {
+    }
+
+    @Override
+    public void cancel() {
+    }
+
+    @Override
+    public SQLWarning getWarnings() {
+        return null;
+    }
+
+    @Override
+    public void clearWarnings() {
+    }
+
+    @Override
+    public void setCursorName(String name) {
+    }
+
+    @Override
+    public boolean execute(String sql) {
+        return false;
+    }
+
+    @Override
+    public ResultSet getResultSet() {
+        return null;
+    }
+
+    @Override
+    public int getUpdateCount() {
+        return 0;
+    }
+
+    @Override
+    public boolean getMoreResults() {
+        return false;
+    }
+
+    @Override
+    public void setFetchDirection(int direction) {
+    }
+
+    @Override
+    public int getFetchDirection() {
+        return 0;
+    }
+
+    @Override
+    public void setFetchSize(int rows) {
+    }
+
+    @Override
+    public int getFetchSize() {
+        return 0;
+    }
+
+    @Override
+    public int getResultSetConcurrency() {
+        return 0;
+    }
+
+    @Override
+    public int getResultSetType() {
+        return 0;
+    }
+
+    @Override
+    public void addBatch(String sql) {
+    }
+
+    @Override
+    public void clearBatch() {
+    }
+
+    @Override
+    public int[] executeBatch() {
+        return NO_COUNTS;
+    }
+
+    @Override
+    public Connection getConnection() {
+        return null;
+    }
+
+    @Override
+    public boolean getMoreResults(int current) {
+        return false;
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() {
+        return null;
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) {
+        return 1;
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) {
+        return 1;
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) {
+        return 1;
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) {
+        return false;
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) {
+        return false;
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) {
+        return false;
+    }
+
+    @Override
+    public int getResultSetHoldability() {
+        return 0;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return false;
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) {
+    }
+
+    @Override
+    public boolean isPoolable() {
+        return false;
+    }
+
+    @Override
+    public void closeOnCompletion() {
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() {
+        return false;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) {
+        return null;
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.ResultSetMetaData;
+
+/**
+ * Metadata of result sets of {@link StubDataSource}, describing columns {@code id, name, amount}.
+ *
+ * @author Dariusz Szwarc
+ */
+final class StubResultSetMetaData implements ResultSetMetaData {
+
+    /**
+     * Labels of columns.
+     */
+    private static final String[] LABELS = {"id", "name", "amount"};
+
+    @Override
+    public int getColumnCount() {
+        return LABELS.length;
+    }
+
+    @Override
+    public boolean isAutoIncrement(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isCaseSensitive(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isSearchable(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isCurrency(int column) {
+        return false;
+    }
+
+    @Override
+    public int isNullable(int column) {
+        return 0;
+    }
+
+    @Override
+    public boolean isSigned(int column) {
+        return false;
+    }
+
+    @Override
+    public int getColumnDisplaySize(int column) {
+        return 0;
+    }
+
+    @Override
+    public String getColumnLabel(int column) {
+        return LABELS[column - 1];
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return LABELS[column - 1];
+    }
+
+    @Override
+    public String getSchemaName(int column) {
+        return null;
+    }
+
+    @Override
+    public int getPrecision(int column) {
+        return 0;
+    }
+
+    @Override
+    public int getScale(int column) {
+        return 0;
+    }
+
+    @Override
+    public String getTableName(int column) {
+        return null;
+    }
+
+    @Override
+    public String getCatalogName(int column) {
+        return null;
+    }
+
+    @Override
+    public int getColumnType(int column) {
+        return 0;
+    }
+
+    @Override
+    public String getColumnTypeName(int column) {
+        return null;
+    }
+
+    @Override
+    public boolean isReadOnly(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isWritable(int column) {
+        return false;
+    }
+
+    @Override
+    public boolean isDefinitelyWritable(int column) {
+        return false;
+    }
+
+    @Override
+    public String getColumnClassName(int column) {
+        return null;
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) {
+        return null;
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return false;
+    }
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * Asynchronous counterpart of {@link Operations}. Every operation is executed on an executor and its result is
+ * completed in a returned {@link CompletableFuture}. Number of operations executed at once is limited, so excess
+ * operations wait in a queue instead of blocking threads while obtaining connections.
+ * <p>
+ * AsyncOperations that create their own executor must be closed to release its threads.
+ *
+ * @author Dariusz Szwarc
+ */
+public interface AsyncOperations extends AutoCloseable {
+
+    /**
+     * Strategy of merging results of partitions of {@link #fetchParallel}.
+     */
+    enum Merge {
+
+        /**
+         * Results are concatenated in order of partitions, so ordering within partitions is preserved.
+         */
+        ORDERED,
+
+        /**
+         * Results of partitions are collected as soon as the partitions complete, in no particular order.
+         */
+        UNORDERED
+    }
+
+    /**
+     * Creates AsyncOperations executing operations on virtual threads, or on a fixed pool of daemon threads when
+     * the runtime does not support virtual threads. The executor is owned by the created AsyncOperations and is shut
+     * down when they are closed.
+     *
+     * @param operations  Operations that will be executed asynchronously.
+     * @param maxInFlight Maximum number of operations executed at once, usually the size of connection pool.
+     * @return Created AsyncOperations. They must be closed when no longer used.
+     */
+    static AsyncOperations of(Operations operations, int maxInFlight) {
+        var executor = BulkheadAsyncOperations.defaultExecutor(maxInFlight);
+        return new BulkheadAsyncOperations(operations, executor, maxInFlight, executor);
+    }
+
+    /**
+     * Creates AsyncOperations executing operations on provided executor. The executor is not shut down when the
+     * AsyncOperations are closed.
+     *
+     * @param operations  Operations that will be executed asynchronously.
+     * @param executor    Executor of operations.
+     * @param maxInFlight Maximum number of operations executed at once, usually the size of connection pool.
+     * @return Created AsyncOperations.
+     */
+    static AsyncOperations of(Operations operations, Executor executor, int maxInFlight) {
+        return new BulkheadAsyncOperations(operations, executor, maxInFlight, null);
+    }
+
+    /**
+     * Fetches a single object.
+     *
+     * @param sql    SQL query.
+     * @param mapper Mapper used to map result set.
+     * @param <T>    Type of produced object.
+     * @return Future of result, as returned by {@link Operations#fetchOne(String, RowMapper)}.
+     */
+    <T> CompletableFuture<Optional<T>> fetchOne(String sql, RowMapper<T> mapper);
+
+    /**
+     * Fetches a single object using provided parameter.
+     *
+     * @param sql       Parameterized SQL query.
+     * @param mapper    Mapper used to map result set.
+     * @param parameter Parameter that is passed to the parameterized query.
+     * @param <T>       Type of produced object.
+     * @return Future of result, as returned by {@link Operations#fetchOne(String, RowMapper, Object)}.
+     */
+    <T> CompletableFuture<Optional<T>> fetchOne(String sql, RowMapper<T> mapper, Object parameter);
+
+    /**
+     * Fetches a single object using provided parameters.
+     *
+     * @param sql        Parameterized SQL query.
+     * @param mapper     Mapper used to map result set.
+     * @param parameters Parameters that are passed to the parameterized query.
+     * @param <T>        Type of produced object.
+     * @return Future of result, as returned by {@link Operations#fetchOne(String, RowMapper, Object...)}.
+     */
+    <T> CompletableFuture<Optional<T>> fetchOne(String sql, RowMapper<T> mapper, Object... parameters);
+
+    /**
+     * Fetches a list of objects.
+     *
+     * @param sql    SQL query.
+     * @param mapper Mapper used to map result set.
+     * @param <T>    Type of produced object.
+     * @return Future of results, as returned by {@link Operations#fetchMany(String, RowMapper)}.
+     */
+    <T> CompletableFuture<List<T>> fetchMany(String sql, RowMapper<T> mapper);
+
+    /**
+     * Fetches a list of objects using provided parameter.
+     *
+     * @param sql       Parameterized SQL query.
+     * @param mapper    Mapper used to map result set.
+     * @param parameter Parameter that is passed to the parameterized query.
+     * @param <T>       Type of produced object.
+     * @return Future of results, as returned by {@link Operations#fetchMany(String, RowMapper, Object)}.
+     */
+    <T> CompletableFuture<List<T>> fetchMany(String sql, RowMapper<T> mapper, Object parameter);
+
+    /**
+     * Fetches a list of objects using provided parameters.
+     *
+     * @param sql        Parameterized SQL query.
+     * @param mapper     Mapper used to map result set.
+     * @param parameters Parameters that are passed to the parameterized query.
+     * @param <T>        Type of produced object.
+     * @return Future of results, as returned by {@link Operations#fetchMany(String, RowMapper, Object...)}.
+     */
+    <T> CompletableFuture<List<T>> fetchMany(String sql, RowMapper<T> mapper, Object... parameters);
+
+    /**
+     * Fetches an object.
+     *
+     * @param sql       SQL query.
+     * @param setter    Setter of parameters for parameterized SQL query.
+     * @param extractor Extractor of result set.
+     * @param handler   Handler of exceptions raised during execution of query and processing of result.
+     * @param <T>       Type of produced object.
+     * @return Future of result, as returned by {@link Operations#fetch(String, Setter, Extractor, Handler)}.
+     * The future is completed exceptionally when the handler throws.
+     */
+    <T> CompletableFuture<T> fetch(String sql, Setter setter, Extractor<T> extractor, Handler<T> handler);
+
+    /**
+     * Executes an update.
+     *
+     * @param sql SQL query.
+     * @return Future of number of affected rows.
+     */
+    CompletableFuture<Integer> update(String sql);
+
+    /**
+     * @param sql       Parameterized SQL query.
+     * @param parameter Parameter that is passed to the parameterized query.
+     * @return Future of number of affected rows.
+     */
+    CompletableFuture<Integer> update(String sql, Object parameter);
+
+    /**
+     * @param sql        Parameterized SQL query.
+     * @param parameters Parameters that are passed to the parameterized query.
+     * @return Future of number of affected rows.
+     */
+    CompletableFuture<Integer> update(String sql, Object... parameters);
+
+    /**
+     * @param sql     SQL query.
+     * @param setter  Setter of parameters for parameterized SQL query.
+     * @param handler Handler of exceptions raised during execution of query and processing of result.
+     * @return Future of number of affected rows. The future is completed exceptionally when the handler throws.
+     */
+    CompletableFuture<Integer> update(String sql, Setter setter, Handler<Integer> handler);
+
+    /**
+     * Fetches a list of objects by splitting key range into partitions and querying every partition on its own
+     * connection. The query must end with a range predicate on the key, e.g. {@code WHERE id >= ? AND id < ?}, whose
+     * placeholders are bound to inclusive lower and exclusive upper bound of the partition, after all provided
+     * parameters.
+     * <p>
+     * Partitions are executed like any other operation, so at most the configured number of them runs at once.
+     *
+     * @param sql        Parameterized SQL query, with lower and upper bound of key as the last two parameters.
+     * @param mapper     Mapper used to map result set.
+     * @param from       Inclusive lower bound of key range.
+     * @param to         Exclusive upper bound of key range.
+     * @param partitions Maximum number of partitions.
+     * @param merge      Strategy of merging results of partitions.
+     * @param parameters Parameters that are passed to the parameterized query before the bounds.
+     * @param <T>        Type of produced object.
+     * @return Future of merged results. The future is completed with {@link UncheckedSQLException} when any of the
+     * partitions fails, in which case the remaining partitions are cancelled.
+     */
+    <T> CompletableFuture<List<T>> fetchParallel(String sql, RowMapper<T> mapper, long from, long to, int partitions,
+                                                 Merge merge, Object... parameters);
+
+    /**
+     * Creates a publisher of rows of a query, using default fetch size.
+     *
+     * @param sql        Parameterized SQL query.
+     * @param mapper     Mapper used to map result set rows.
+     * @param parameters Parameters that are passed to the parameterized query.
+     * @param <T>        Type of produced object.
+     * @return Publisher of rows.
+     * @see #publish(String, Setter, RowMapper, int)
+     */
+    <T> Flow.Publisher<T> publish(String sql, RowMapper<T> mapper, Object... parameters);
+
+    /**
+     * Creates a publisher of rows of a query. Every subscription executes the query on its own connection when it
+     * first requests rows, and reads rows from the result set only as they are requested, so a slow subscriber
+     * holds the connection instead of buffering rows. Rows and terminal signals are delivered on the executor of
+     * these operations. The connection is released when the subscription completes, fails or is cancelled.
+     * <p>
+     * Subscriptions are not counted by the limit of operations executed at once. Failed query is signalled as
+     * {@link UncheckedSQLException}.
+     *
+     * @param sql       Parameterized SQL query.
+     * @param setter    Setter of parameters for parameterized SQL query.
+     * @param mapper    Mapper used to map result set rows.
+     * @param fetchSize Number of rows fetched from the database in a single round trip.
+     * @param <T>       Type of produced object.
+     * @return Publisher of rows.
+     */
+    <T> Flow.Publisher<T> publish(String sql, Setter setter, RowMapper<T> mapper, int fetchSize);
+
+    /**
+     * Shuts down the executor owned by these operations, if any. Operations that are already executing complete,
+     * operations submitted afterwards, or still waiting in the queue, are completed with
+     * {@link java.util.concurrent.RejectedExecutionException}. Does nothing when the executor was provided.
+     */
+    @Override
+    default void close() {
+        // provided executor is managed by the caller
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Loader that coalesces concurrent lookups of single rows by key into one query.
+ * <p>
+ * The first lookup opens a batch and waits for the window to collect lookups of other threads, unless the batch
+ * reaches its maximum size sooner. Then it executes the query with all distinct keys of the batch as a collection
+ * parameter, which is expanded into an {@code IN} list, and hands every row to the lookup of its key. Lookups of the
+ * same key within a batch share the result.
+ * <p>
+ * As with {@link Operations#fetchOne}, failed query results in empty results of all lookups of the batch.
+ *
+ * @param <K> Type of key.
+ * @param <T> Type of loaded object.
+ * @author Dariusz Szwarc
+ */
+public final class BatchLoader<K, T> {
+
+    /**
+     * Operations used to execute queries.
+     */
+    private final Operations operations;
+
+    /**
+     * Query selecting rows by a list of keys.
+     */
+    private final String sql;
+
+    /**
+     * Mapper of rows.
+     */
+    private final RowMapper<T> mapper;
+
+    /**
+     * Function returning key of a mapped object.
+     */
+    private final Function<? super T, ? extends K> key;
+
+    /**
+     * Sizes of executed batches.
+     */
+    private final Histogram batchSizes = new Histogram();
+
+    /**
+     * Time between a lookup and its result, in nanoseconds.
+     */
+    private final Histogram waitTimes = new Histogram();
+
+    /**
+     * Batch collecting lookups, null if there is none.
+     */
+    private Batch<K, T> current;
+
+    /**
+     * Maximum number of distinct keys of a batch.
+     */
+    private volatile int maxBatchSize = 256;
+
+    /**
+     * Time of collecting lookups into a batch, in nanoseconds.
+     */
+    private volatile long window = Duration.ofMillis(1).toNanos();
+
+    /**
+     * Creates instance of BatchLoader.
+     *
+     * @param operations Operations used to execute queries.
+     * @param sql        Query selecting rows by a list of keys.
+     * @param mapper     Mapper of rows.
+     * @param key        Function returning key of a mapped object.
+     */
+    private BatchLoader(Operations operations, String sql, RowMapper<T> mapper, Function<? super T, ? extends K> key) {
+        this.operations = requireNonNull(operations, "operations");
+        this.sql = requireNonNull(sql, "sql");
+        this.mapper = requireNonNull(mapper, "mapper");
+        this.key = requireNonNull(key, "key");
+    }
+
+    /**
+     * Creates a BatchLoader.
+     *
+     * @param operations Operations used to execute queries.
+     * @param sql        Query with a single parameter being a list of keys, e.g.
+     *                   {@code SELECT * FROM item WHERE id IN (?)}.
+     * @param mapper     Mapper of rows.
+     * @param key        Function returning key of a mapped object. Returned keys must be equal to looked up keys,
+     *                   e.g. of the same boxed type.
+     * @param <K>        Type of key.
+     * @param <T>        Type of loaded object.
+     * @return New BatchLoader object.
+     */
+    public static <K, T> BatchLoader<K, T> create(Operations operations, String sql, RowMapper<T> mapper,
+                                                  Function<? super T, ? extends K> key) {
+        return new BatchLoader<>(operations, sql, mapper, key);
+    }
+
+    /**
+     * @param maxBatchSize Maximum number of distinct keys of a single query, at most 1024, the largest collection
+     *                     expanded into an {@code IN} list. Defaults to 256.
+     * @return This object.
+     */
+    public BatchLoader<K, T> maxBatchSize(int maxBatchSize) {
+        if (maxBatchSize < 1 || maxBatchSize > InListExpansion.MAX_BUCKET) {
+            throw new IllegalArgumentException("Maximum batch size must be between 1 and " + InListExpansion.MAX_BUCKET
+                    + ": " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    /**
+     * @param window Time of collecting lookups into a batch. Defaults to 1 millisecond.
+     * @return This object.
+     */
+    public BatchLoader<K, T> window(Duration window) {
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("Window must not be negative: " + window);
+        }
+        this.window = window.toNanos();
+        return this;
+    }
+
+    /**
+     * Looks up a single object by key, waiting until the batch containing the key is executed.
+     *
+     * @param key Key of the object.
+     * @return {@code Optional} of result or empty if the database does not contain any results.
+     */
+    public Optional<T> load(K key) {
+        requireNonNull(key, "key");
+        long start = System.nanoTime();
+        Batch<K, T> batch;
+        CompletableFuture<Optional<T>> result;
+        boolean leader = false;
+        synchronized (this) {
+            if (current == null) {
+                current = new Batch<>(Thread.currentThread());
+                leader = true;
+            }
+            batch = current;
+            result = batch.results.computeIfAbsent(key, k -> new CompletableFuture<>());
+            if (batch.results.size() >= maxBatchSize) {
+                current = null;
+                batch.full = true;
+            }
+        }
+        try {
+            if (leader) {
+                await(batch, start + window);
+                execute(batch);
+            } else if (batch.full) {
+                LockSupport.unpark(batch.leader);
+            }
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw (RuntimeException) e.getCause();
+        } finally {
+            waitTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Waits until the batch is full, the deadline passes or the current thread is interrupted, and closes the batch.
+     * Interrupt status of the thread is kept.
+     *
+     * @param batch    Batch opened by the current thread.
+     * @param deadline Time when the batch closes, in nanoseconds.
+     */
+    private void await(Batch<K, T> batch, long deadline) {
+        long remaining;
+        while (!batch.full && !Thread.currentThread().isInterrupted()
+                && (remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remaining);
+        }
+        synchronized (this) {
+            if (current == batch) {
+                current = null;
+            }
+        }
+    }
+
+    /**
+     * @return Distribution of number of distinct keys of executed queries.
+     */
+    public Histogram.Snapshot batchSizes() {
+        return batchSizes.snapshot();
+    }
+
+    /**
+     * @return Distribution of time between a lookup and its result, in nanoseconds.
+     */
+    public Histogram.Snapshot waitTimes() {
+        return waitTimes.snapshot();
+    }
+
+    /**
+     * Executes the query for all keys of the batch and completes their results.
+     *
+     * @param batch Closed batch.
+     */
+    private void execute(Batch<K, T> batch) {
+        var keys = new ArrayList<>(batch.results.keySet());
+        batchSizes.record(keys.size());
+        try {
+            Map<K, T> found = new HashMap<>();
+            for (T row : operations.fetchMany(sql, mapper, keys)) {
+                found.putIfAbsent(key.apply(row), row);
+            }
+            batch.results.forEach((k, result) -> result.complete(Optional.ofNullable(found.get(k))));
+        } catch (RuntimeException | Error e) {
+            batch.results.values().forEach(result -> result.completeExceptionally(e));
+            throw e;
+        }
+    }
+
+    /**
+     * Lookups collected for a single query.
+     *
+     * @param <K> Type of key.
+     * @param <T> Type of loaded object.
+     */
+    private static final class Batch<K, T> {
+
+        /**
+         * Results by looked up key, in order of lookups.
+         */
+        private final Map<K, CompletableFuture<Optional<T>>> results = new LinkedHashMap<>();
+
+        /**
+         * Thread that opened the batch and executes it.
+         */
+        private final Thread leader;
+
+        /**
+         * Whether the batch reached its maximum size.
+         */
+        private volatile boolean full;
+
+        /**
+         * Creates instance of Batch.
+         *
+         * @param leader Thread that opened the batch and executes it.
+         */
+        Batch(Thread leader) {
+            this.leader = leader;
+        }
+    }
+}
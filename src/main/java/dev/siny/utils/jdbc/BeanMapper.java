@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mapper of rows to beans. A bean is created using its no-argument constructor and every setter with matching column
+ * is invoked, in order of columns. Columns without matching setter are ignored.
+ *
+ * @param <B> Type of produced bean.
+ * @author Dariusz Szwarc
+ */
+final class BeanMapper<B> extends CompiledMapper<B> {
+
+    /**
+     * No-argument constructor of the bean, of type {@code ()Object}.
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * Setters of the bean by normalized property name.
+     */
+    private final Map<String, MethodHandle> setters = new HashMap<>();
+
+    /**
+     * Creates instance of BeanMapper.
+     *
+     * @param type   Type of produced bean.
+     * @param lookup Lookup that has access to the constructor and setters of the bean.
+     */
+    BeanMapper(Class<B> type, MethodHandles.Lookup lookup) {
+        try {
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            for (Method method : type.getMethods()) {
+                if (isSetter(method)) {
+                    setters.putIfAbsent(normalize(method.getName().substring(3)), lookup.unreflect(method));
+                }
+            }
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unable to access bean " + type.getName(), e);
+        }
+    }
+
+    @Override
+    RowMapper<B> compile(Map<String, Integer> columns) throws SQLException {
+        var bound = new ArrayList<MethodHandle>();
+        for (var column : columns.entrySet()) {
+            var setter = setters.get(column.getKey());
+            if (setter != null) {
+                var type = setter.type().parameterType(1);
+                bound.add(MethodHandles.filterArguments(setter, 1, getter(type, column.getValue()))
+                        .asType(MethodType.methodType(void.class, Object.class, ResultSet.class)));
+            }
+        }
+        if (bound.isEmpty()) {
+            throw new SQLException("No bean property matches any of " + describe(columns));
+        }
+        var handle = MethodHandles.dropArguments(MethodHandles.identity(Object.class), 1, ResultSet.class);
+        Collections.reverse(bound);
+        for (var setter : bound) {
+            handle = MethodHandles.foldArguments(handle, setter);
+        }
+        var mapper = MethodHandles.foldArguments(handle, constructor);
+        return resultSet -> {
+            try {
+                @SuppressWarnings("unchecked")
+                var bean = (B) (Object) mapper.invokeExact(resultSet);
+                return bean;
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+
+    /**
+     * @param method Checked method.
+     * @return Whether the method is a setter of a bean property.
+     */
+    private static boolean isSetter(Method method) {
+        return !Modifier.isStatic(method.getModifiers())
+                && method.getName().length() > 3
+                && method.getName().startsWith("set")
+                && method.getParameterCount() == 1;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Binder of a single item to parameters of JDBC Prepared statement. Unlike {@link Setter}, Binder is not tied to
+ * particular values, so one instance can be reused for every item of a batch.
+ *
+ * @param <T> Type of bound item.
+ * @author Dariusz Szwarc
+ */
+@FunctionalInterface
+public interface Binder<T> {
+
+    /**
+     * Creates a Binder that sets all elements of an array in encounter order.
+     *
+     * @return Created Binder.
+     */
+    static Binder<Object[]> forParameters() {
+        return (statement, parameters) -> {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+        };
+    }
+
+    /**
+     * Creates a Binder that sets values extracted from item in encounter order. The Binder supports binding at any
+     * offset, so several items can be bound to a single statement, e.g. multi-row {@code INSERT}.
+     *
+     * @param columns Function extracting column values from item.
+     * @param <T>     Type of bound item.
+     * @return Created Binder.
+     */
+    static <T> Binder<T> of(Function<? super T, Object[]> columns) {
+        requireNonNull(columns, "columns");
+        return new Binder<>() {
+            @Override
+            public void bind(PreparedStatement statement, T item) throws SQLException {
+                bind(statement, 0, item);
+            }
+
+            @Override
+            public void bind(PreparedStatement statement, int offset, T item) throws SQLException {
+                var values = columns.apply(item);
+                for (int i = 0; i < values.length; i++) {
+                    statement.setObject(offset + i + 1, values[i]);
+                }
+            }
+        };
+    }
+
+    /**
+     * Creates a Setter that binds provided item using this Binder.
+     *
+     * @param item Item that will be bound.
+     * @return Created Setter.
+     */
+    default Setter toSetter(T item) {
+        return statement -> bind(statement, item);
+    }
+
+    /**
+     * Sets up the prepared statement by setting parameters obtained from the item.
+     *
+     * @param statement PreparedStatement that will be set up.
+     * @param item      Item that provides parameter values.
+     * @throws SQLException When prepared statement raises an exception when setting the parameters.
+     */
+    void bind(PreparedStatement statement, T item) throws SQLException;
+
+    /**
+     * Sets up the prepared statement by setting parameters obtained from the item, starting after an offset. It
+     * allows binding several items to a single statement, e.g. multi-row {@code INSERT}.
+     * <p>
+     * The default implementation supports only zero offset, as {@link #bind(PreparedStatement, Object)} sets
+     * parameters at fixed indices. Binders created by {@link #of(Function)} support any offset.
+     *
+     * @param statement PreparedStatement that will be set up.
+     * @param offset    Number of parameters preceding the parameters of the item, so the first parameter of the item
+     *                  is set at index {@code offset + 1}.
+     * @param item      Item that provides parameter values.
+     * @throws SQLException When prepared statement raises an exception when setting the parameters or the offset is
+     *                      not supported.
+     */
+    default void bind(PreparedStatement statement, int offset, T item) throws SQLException {
+        if (offset != 0) {
+            throw new SQLFeatureNotSupportedException("Binder does not support binding at offset " + offset);
+        }
+        bind(statement, item);
+    }
+}
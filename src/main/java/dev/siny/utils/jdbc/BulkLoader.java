@@ -0,0 +1,608 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pipeline loading large number of items using multi-row {@code INSERT} statements.
+ * <p>
+ * Single-row {@code INSERT ... VALUES (?, ...)} is rewritten to statements inserting as many rows as fit within the
+ * parameter limit of the driver, when the binder supports binding at an offset, e.g. one created by
+ * {@link Binder#of}. Otherwise rows are inserted using JDBC batches of the single-row statement. Items are grouped into
+ * chunks, which are queued to a fixed number of writers.
+ * Every writer holds its own connection and commits every chunk separately. The queue is bounded, so producing items
+ * is suspended when writers can not keep up.
+ * <p>
+ * Configuration methods must not be called while items are being loaded.
+ *
+ * @param <T> Type of loaded item.
+ * @author Dariusz Szwarc
+ */
+public final class BulkLoader<T> {
+
+    /**
+     * Pattern matching start of row values.
+     */
+    private static final Pattern VALUES = Pattern.compile("(?i)\\bVALUES\\s*\\(");
+
+    /**
+     * Logger.
+     */
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /**
+     * Helper used to open writer sessions.
+     */
+    private final DataSourceHelper helper;
+
+    /**
+     * Binder of item to columns of a row.
+     */
+    private final Binder<T> binder;
+
+    /**
+     * Whether the binder supports binding at an offset, so that several rows can be bound to a single statement.
+     */
+    private final boolean multiRow;
+
+    /**
+     * Part of statement preceding row values.
+     */
+    private final String prefix;
+
+    /**
+     * Row values, with placeholders of a single row.
+     */
+    private final String row;
+
+    /**
+     * Part of statement following row values.
+     */
+    private final String suffix;
+
+    /**
+     * Number of parameters of a single row.
+     */
+    private final int columns;
+
+    /**
+     * Number of writers.
+     */
+    private int writers = 4;
+
+    /**
+     * Number of items committed together.
+     */
+    private int chunkSize = 10_000;
+
+    /**
+     * Number of chunks waiting for writers.
+     */
+    private int queueCapacity = 8;
+
+    /**
+     * Maximum number of parameters of a single statement.
+     */
+    private int maxParameters = 2000;
+
+    /**
+     * Handler of exceptions raised while writing a chunk.
+     */
+    private Handler<Integer> handler = Handler.returning(e -> 0);
+
+    /**
+     * Creates instance of BulkLoader.
+     *
+     * @param helper Helper used to open writer sessions.
+     * @param sql    Single-row insert.
+     * @param binder Binder of item to columns of a row.
+     */
+    private BulkLoader(DataSourceHelper helper, String sql, Binder<T> binder) {
+        this.helper = requireNonNull(helper, "helper");
+        this.binder = requireNonNull(binder, "binder");
+        this.multiRow = supportsOffset(binder);
+        var values = VALUES.matcher(sql);
+        if (!values.find()) {
+            throw new IllegalArgumentException("Statement does not contain VALUES clause: " + sql);
+        }
+        int start = values.end() - 1;
+        int end = closingParenthesis(sql, start);
+        this.prefix = sql.substring(0, start);
+        this.row = sql.substring(start, end + 1);
+        this.suffix = sql.substring(end + 1);
+        this.columns = (int) row.chars().filter(c -> c == '?').count();
+        if (columns == 0) {
+            throw new IllegalArgumentException("Statement does not contain parameters: " + sql);
+        }
+    }
+
+    /**
+     * Creates a BulkLoader.
+     *
+     * @param helper Helper used to obtain connections of writers.
+     * @param sql    Single-row parameterized insert, e.g. {@code INSERT INTO t (a, b) VALUES (?, ?)}.
+     * @param binder Binder of item to parameters of the row. Rows are inserted using multi-row statements only when
+     *               it overrides {@link Binder#bind(PreparedStatement, int, Object)}, e.g. one created by
+     *               {@link Binder#of}.
+     * @param <T>    Type of loaded item.
+     * @return New BulkLoader object.
+     * @throws IllegalArgumentException When statement does not contain parameterized {@code VALUES} clause.
+     */
+    public static <T> BulkLoader<T> create(DataSourceHelper helper, String sql, Binder<T> binder) {
+        return new BulkLoader<>(helper, sql, binder);
+    }
+
+    /**
+     * @param writers Number of writers, each using its own connection. Defaults to 4.
+     * @return This object.
+     */
+    public BulkLoader<T> writers(int writers) {
+        this.writers = positive(writers, "Number of writers");
+        return this;
+    }
+
+    /**
+     * @param chunkSize Number of items committed together. Defaults to 10000.
+     * @return This object.
+     */
+    public BulkLoader<T> chunkSize(int chunkSize) {
+        this.chunkSize = positive(chunkSize, "Chunk size");
+        return this;
+    }
+
+    /**
+     * @param queueCapacity Number of chunks waiting for writers before producing items is suspended. Defaults to 8.
+     * @return This object.
+     */
+    public BulkLoader<T> queueCapacity(int queueCapacity) {
+        this.queueCapacity = positive(queueCapacity, "Queue capacity");
+        return this;
+    }
+
+    /**
+     * @param maxParameters Maximum number of parameters of a single statement, as supported by the driver. Defaults
+     *                      to 2000.
+     * @return This object.
+     */
+    public BulkLoader<T> maxParameters(int maxParameters) {
+        this.maxParameters = positive(maxParameters, "Maximum number of parameters");
+        return this;
+    }
+
+    /**
+     * @param handler Handler of exceptions raised while writing a chunk. The chunk is rolled back and the result of
+     *                the handler is counted as number of written rows. If the handler throws, loading is stopped and
+     *                the exception is rethrown by {@link #load}. Loading is also stopped, without invoking the
+     *                handler, when the binder throws a runtime exception or the chunk can not be rolled back.
+     *                Defaults to handler returning zero.
+     * @return This object.
+     */
+    public BulkLoader<T> handler(Handler<Integer> handler) {
+        this.handler = requireNonNull(handler, "handler");
+        return this;
+    }
+
+    /**
+     * Loads all items of a stream.
+     *
+     * @param items Loaded items. The stream is closed after loading.
+     * @return Summary of loading.
+     */
+    public Summary load(Stream<? extends T> items) {
+        try (items) {
+            return load(items.iterator());
+        }
+    }
+
+    /**
+     * Loads all items of an iterator. The calling thread produces chunks and blocks when all writers are busy and the
+     * queue is full.
+     *
+     * @param items Loaded items.
+     * @return Summary of loading.
+     */
+    public Summary load(Iterator<? extends T> items) {
+        log.debug("Loading items using:\n {}", prefix + row + suffix);
+        long start = System.nanoTime();
+        var state = new State<T>(queueCapacity);
+        var threads = new Thread[writers];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> write(state), "jdbc-bulk-writer-" + i);
+            threads[i].start();
+        }
+        try {
+            List<T> chunk = new ArrayList<>(chunkSize);
+            while (items.hasNext() && state.failure == null) {
+                chunk.add(items.next());
+                if (chunk.size() == chunkSize) {
+                    if (!state.put(chunk)) {
+                        break;
+                    }
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                state.put(chunk);
+            }
+        } finally {
+            for (int i = 0; i < threads.length; i++) {
+                state.put(state.end);
+            }
+            join(threads, state);
+        }
+        if (state.failure != null) {
+            throw state.failure;
+        }
+        return new Summary(state.written.sum(), state.failed.sum(), state.chunks.sum(),
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Writes chunks until the end of items is reached or loading fails.
+     *
+     * @param state State of loading.
+     */
+    private void write(State<T> state) {
+        try {
+            helper.inSession(session -> {
+                List<T> chunk;
+                while ((chunk = state.take()) != state.end && state.failure == null) {
+                    write(session, chunk, state);
+                }
+                return null;
+            }, true, DataSourceHelper.DEFAULT_STATEMENT_CACHE_SIZE, Handler.throwing(UncheckedSQLException::new));
+        } catch (RuntimeException e) {
+            state.fail(e);
+        } catch (Error e) {
+            state.fail(new IllegalStateException("Writer failed", e));
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a chunk in a single transaction.
+     *
+     * @param session Session of the writer.
+     * @param chunk   Written items.
+     * @param state   State of loading.
+     */
+    private void write(Session session, List<T> chunk, State<T> state) {
+        try {
+            insert(session, chunk);
+            session.commit();
+        } catch (RuntimeException | Error e) {
+            state.failed.add(chunk.size());
+            try {
+                session.rollback();
+            } catch (RuntimeException rollback) {
+                e.addSuppressed(rollback);
+                throw e;
+            }
+            if (!(e instanceof UncheckedSQLException)) {
+                throw e;
+            }
+            state.written.add(handler.handle(((UncheckedSQLException) e).getCause()));
+            return;
+        }
+        state.written.add(chunk.size());
+        state.chunks.increment();
+    }
+
+    /**
+     * Inserts items of a chunk, using multi-row statements if the binder supports them.
+     *
+     * @param session Session of the writer.
+     * @param chunk   Inserted items.
+     * @throws UncheckedSQLException When any of the statements fails.
+     */
+    private void insert(Session session, List<T> chunk) {
+        Handler<Integer> failure = Handler.throwing(UncheckedSQLException::new);
+        if (!multiRow) {
+            session.updateBatch(statement(1), chunk, binder, chunk.size(), failure);
+            return;
+        }
+        int rowsPerStatement = Math.max(1, maxParameters / columns);
+        for (int offset = 0; offset < chunk.size(); offset += rowsPerStatement) {
+            int first = offset;
+            int rows = Math.min(rowsPerStatement, chunk.size() - offset);
+            session.update(statement(rows), statement -> {
+                for (int i = 0; i < rows; i++) {
+                    binder.bind(statement, i * columns, chunk.get(first + i));
+                }
+            }, failure);
+        }
+    }
+
+    /**
+     * Creates statement inserting provided number of rows.
+     *
+     * @param rows Number of inserted rows.
+     * @return Multi-row insert.
+     */
+    private String statement(int rows) {
+        var sql = new StringBuilder(prefix.length() + suffix.length() + rows * (row.length() + 2));
+        sql.append(prefix).append(row);
+        for (int i = 1; i < rows; i++) {
+            sql.append(", ").append(row);
+        }
+        return sql.append(suffix).toString();
+    }
+
+    /**
+     * Waits for writers to complete.
+     *
+     * @param threads Threads of writers.
+     * @param state   State of loading.
+     */
+    private static void join(Thread[] threads, State<?> state) {
+        for (var thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                state.fail(new IllegalStateException("Interrupted while waiting for writers", e));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds parenthesis closing the one at provided index.
+     *
+     * @param sql   SQL text.
+     * @param start Index of opening parenthesis.
+     * @return Index of closing parenthesis.
+     */
+    private static int closingParenthesis(String sql, int start) {
+        int depth = 0;
+        for (int i = start; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unbalanced parentheses in VALUES clause: " + sql);
+    }
+
+    /**
+     * @param binder Checked binder.
+     * @return Whether the binder overrides binding at an offset.
+     */
+    private static boolean supportsOffset(Binder<?> binder) {
+        try {
+            return binder.getClass().getMethod("bind", PreparedStatement.class, int.class, Object.class)
+                    .getDeclaringClass() != Binder.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param value Checked value.
+     * @param name  Name of the value used in exception message.
+     * @return Checked value.
+     */
+    private static int positive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * State of a single load, shared by producer and writers.
+     *
+     * @param <T> Type of loaded item.
+     */
+    private static final class State<T> {
+
+        /**
+         * Marker of end of items.
+         */
+        private final List<T> end = new ArrayList<>(0);
+
+        /**
+         * Chunks waiting for writers.
+         */
+        private final BlockingQueue<List<T>> queue;
+
+        /**
+         * Number of written rows.
+         */
+        private final LongAdder written = new LongAdder();
+
+        /**
+         * Number of rows of failed chunks.
+         */
+        private final LongAdder failed = new LongAdder();
+
+        /**
+         * Number of committed chunks.
+         */
+        private final LongAdder chunks = new LongAdder();
+
+        /**
+         * Exception that stopped loading.
+         */
+        private volatile RuntimeException failure;
+
+        /**
+         * Creates instance of State.
+         *
+         * @param capacity Number of chunks waiting for writers.
+         */
+        private State(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        /**
+         * Queues a chunk, waiting for space unless loading fails.
+         *
+         * @param chunk Queued chunk.
+         * @return Whether the chunk was queued.
+         */
+        private boolean put(List<T> chunk) {
+            try {
+                while (!queue.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+                    if (failure != null) {
+                        if (chunk != end) {
+                            return false;
+                        }
+                        queue.clear();
+                    }
+                }
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new IllegalStateException("Interrupted while loading items", e));
+                queue.clear();
+                return queue.offer(chunk);
+            }
+        }
+
+        /**
+         * @return Next chunk, waiting for it if necessary.
+         */
+        private List<T> take() {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail(new IllegalStateException("Interrupted while waiting for items", e));
+                return end;
+            }
+        }
+
+        /**
+         * Stops loading.
+         *
+         * @param e Exception that stopped loading.
+         */
+        private synchronized void fail(RuntimeException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Summary of loading.
+     */
+    public static final class Summary {
+
+        /**
+         * Number of written rows.
+         */
+        private final long rowsWritten;
+
+        /**
+         * Number of rows of failed chunks.
+         */
+        private final long rowsFailed;
+
+        /**
+         * Number of committed chunks.
+         */
+        private final long chunks;
+
+        /**
+         * Time spent loading.
+         */
+        private final Duration elapsed;
+
+        /**
+         * Creates instance of Summary.
+         *
+         * @param rowsWritten Number of written rows.
+         * @param rowsFailed  Number of rows of failed chunks.
+         * @param chunks      Number of committed chunks.
+         * @param elapsed     Time spent loading.
+         */
+        private Summary(long rowsWritten, long rowsFailed, long chunks, Duration elapsed) {
+            this.rowsWritten = rowsWritten;
+            this.rowsFailed = rowsFailed;
+            this.chunks = chunks;
+            this.elapsed = elapsed;
+        }
+
+        /**
+         * @return Number of written rows.
+         */
+        public long rowsWritten() {
+            return rowsWritten;
+        }
+
+        /**
+         * @return Number of rows of chunks that failed and were rolled back.
+         */
+        public long rowsFailed() {
+            return rowsFailed;
+        }
+
+        /**
+         * @return Number of committed chunks.
+         */
+        public long chunks() {
+            return chunks;
+        }
+
+        /**
+         * @return Time spent loading.
+         */
+        public Duration elapsed() {
+            return elapsed;
+        }
+
+        /**
+         * @return Average number of written rows per second.
+         */
+        public double rowsPerSecond() {
+            long nanos = elapsed.toNanos();
+            return nanos == 0 ? 0 : rowsWritten * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return "rowsWritten=" + rowsWritten + ", rowsFailed=" + rowsFailed + ", chunks=" + chunks + ", elapsed="
+                    + elapsed + ", rowsPerSecond=" + Math.round(rowsPerSecond());
+        }
+    }
+}
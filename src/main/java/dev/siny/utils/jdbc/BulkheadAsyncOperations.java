@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * AsyncOperations that queue operations and dispatch at most a fixed number of them to the executor at once.
+ *
+ * @author Dariusz Szwarc
+ */
+final class BulkheadAsyncOperations implements AsyncOperations {
+
+    /**
+     * Operations that are executed asynchronously.
+     */
+    private final Operations operations;
+
+    /**
+     * Executor of operations.
+     */
+    private final Executor executor;
+
+    /**
+     * Executor created by and shut down with these operations. Null when the executor was provided.
+     */
+    private final ExecutorService owned;
+
+    /**
+     * Maximum number of operations executed at once.
+     */
+    private final int maxInFlight;
+
+    /**
+     * Number of operations dispatched to the executor and not yet completed.
+     */
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    /**
+     * Operations waiting for dispatch.
+     */
+    private final Queue<Task<?>> queue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates instance of BulkheadAsyncOperations.
+     *
+     * @param operations  Operations that are executed asynchronously.
+     * @param executor    Executor of operations.
+     * @param maxInFlight Maximum number of operations executed at once.
+     * @param owned       Executor shut down when these operations are closed, usually the executor of operations.
+     *                    May be null.
+     */
+    BulkheadAsyncOperations(Operations operations, Executor executor, int maxInFlight, ExecutorService owned) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("Maximum number of operations must be positive: " + maxInFlight);
+        }
+        this.operations = requireNonNull(operations, "operations");
+        this.executor = requireNonNull(executor, "executor");
+        this.maxInFlight = maxInFlight;
+        this.owned = owned;
+    }
+
+    /**
+     * Creates executor using virtual threads, if supported by the runtime, or fixed pool of daemon threads.
+     *
+     * @param threads Number of threads of the fixed pool.
+     * @return Created executor.
+     */
+    static ExecutorService defaultExecutor(int threads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                var thread = new Thread(runnable, "jdbc-async");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<Optional<T>> fetchOne(String sql, RowMapper<T> mapper) {
+        return submit(() -> operations.fetchOne(sql, mapper));
+    }
+
+    @Override
+    public <T> CompletableFuture<Optional<T>> fetchOne(String sql, RowMapper<T> mapper, Object parameter) {
+        return submit(() -> operations.fetchOne(sql, mapper, parameter));
+    }
+
+    @Override
+    public <T> CompletableFuture<Optional<T>> fetchOne(String sql, RowMapper<T> mapper, Object... parameters) {
+        return submit(() -> operations.fetchOne(sql, mapper, parameters));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> fetchMany(String sql, RowMapper<T> mapper) {
+        return submit(() -> operations.fetchMany(sql, mapper));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> fetchMany(String sql, RowMapper<T> mapper, Object parameter) {
+        return submit(() -> operations.fetchMany(sql, mapper, parameter));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> fetchMany(String sql, RowMapper<T> mapper, Object... parameters) {
+        return submit(() -> operations.fetchMany(sql, mapper, parameters));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> fetch(String sql, Setter setter, Extractor<T> extractor, Handler<T> handler) {
+        return submit(() -> operations.fetch(sql, setter, extractor, handler));
+    }
+
+    @Override
+    public CompletableFuture<Integer> update(String sql) {
+        return submit(() -> operations.update(sql));
+    }
+
+    @Override
+    public CompletableFuture<Integer> update(String sql, Object parameter) {
+        return submit(() -> operations.update(sql, parameter));
+    }
+
+    @Override
+    public CompletableFuture<Integer> update(String sql, Object... parameters) {
+        return submit(() -> operations.update(sql, parameters));
+    }
+
+    @Override
+    public CompletableFuture<Integer> update(String sql, Setter setter, Handler<Integer> handler) {
+        return submit(() -> operations.update(sql, setter, handler));
+    }
+
+    @Override
+    public <T> Flow.Publisher<T> publish(String sql, RowMapper<T> mapper, Object... parameters) {
+        if (InListExpansion.containsCollection(parameters)) {
+            var expanded = InListExpansion.expand(sql, parameters);
+            return publish(expanded.sql(), mapper, expanded.parameters());
+        }
+        return publish(sql, Setter.forParameters(parameters), mapper, Operations.DEFAULT_FETCH_SIZE);
+    }
+
+    @Override
+    public <T> Flow.Publisher<T> publish(String sql, Setter setter, RowMapper<T> mapper, int fetchSize) {
+        return new RowPublisher<>(operations, executor, sql, setter, mapper, fetchSize);
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> fetchParallel(String sql, RowMapper<T> mapper, long from, long to,
+                                                        int partitions, Merge merge, Object... parameters) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("Number of partitions must be positive: " + partitions);
+        }
+        requireNonNull(merge, "merge");
+        if (from >= to) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        long span = Math.subtractExact(to, from);
+        long size = span / partitions + (span % partitions == 0 ? 0 : 1);
+        Handler<List<T>> empty = Handler.returning(e -> Collections.emptyList());
+        var extractor = Extractor.extractMany(mapper, empty);
+        List<CompletableFuture<List<T>>> submitted = new ArrayList<>();
+        List<CompletableFuture<List<T>>> tasks = new ArrayList<>();
+        Queue<List<T>> completed = new ConcurrentLinkedQueue<>();
+        long lower = from;
+        while (lower < to) {
+            long upper = to - lower <= size ? to : lower + size;
+            var bounded = Arrays.copyOf(parameters, parameters.length + 2);
+            bounded[parameters.length] = lower;
+            bounded[parameters.length + 1] = upper;
+            var expanded = InListExpansion.containsCollection(bounded) ? InListExpansion.expand(sql, bounded)
+                    : new InListExpansion.Expanded(sql, bounded);
+            var task = submit(() -> operations.fetch(expanded.sql(), Setter.forParameters(expanded.parameters()),
+                    extractor, Handler.throwing(UncheckedSQLException::new)));
+            submitted.add(task);
+            tasks.add(merge == Merge.ORDERED ? task : task.thenApply(rows -> {
+                completed.add(rows);
+                return rows;
+            }));
+            lower = upper;
+        }
+        var all = CompletableFuture.allOf(tasks.toArray(CompletableFuture<?>[]::new));
+        all.whenComplete((ignored, e) -> {
+            if (e != null) {
+                submitted.forEach(task -> task.cancel(false));
+            }
+        });
+        return all.thenApply(ignored -> {
+            if (merge == Merge.UNORDERED) {
+                return concatenate(completed);
+            }
+            List<List<T>> parts = new ArrayList<>(tasks.size());
+            tasks.forEach(task -> parts.add(task.join()));
+            return concatenate(parts);
+        });
+    }
+
+    @Override
+    public void close() {
+        if (owned != null) {
+            owned.shutdown();
+        }
+    }
+
+    /**
+     * Concatenates lists.
+     *
+     * @param lists Concatenated lists.
+     * @param <T>   Type of list element.
+     * @return List containing elements of all lists, in order.
+     */
+    private static <T> List<T> concatenate(Iterable<List<T>> lists) {
+        int size = 0;
+        for (var list : lists) {
+            size += list.size();
+        }
+        List<T> result = new ArrayList<>(size);
+        for (var list : lists) {
+            result.addAll(list);
+        }
+        return result;
+    }
+
+    /**
+     * Queues an operation and dispatches queued operations if the limit allows.
+     *
+     * @param operation Queued operation.
+     * @param <T>       Type of produced object.
+     * @return Future completed with result of the operation.
+     */
+    private <T> CompletableFuture<T> submit(Supplier<T> operation) {
+        var task = new Task<>(operation);
+        queue.add(task);
+        dispatch();
+        return task.future;
+    }
+
+    /**
+     * Dispatches queued operations to the executor until the queue is empty or the limit is reached.
+     */
+    private void dispatch() {
+        while (!queue.isEmpty()) {
+            int current = inFlight.get();
+            if (current >= maxInFlight) {
+                return;
+            }
+            if (!inFlight.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            var task = queue.poll();
+            if (task == null) {
+                inFlight.decrementAndGet();
+                continue;
+            }
+            try {
+                executor.execute(() -> {
+                    try {
+                        task.run();
+                    } finally {
+                        inFlight.decrementAndGet();
+                        dispatch();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight.decrementAndGet();
+                task.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Queued operation together with its future.
+     *
+     * @param <T> Type of produced object.
+     */
+    private static final class Task<T> {
+
+        /**
+         * Executed operation.
+         */
+        private final Supplier<T> operation;
+
+        /**
+         * Future completed with result of the operation.
+         */
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        /**
+         * Creates instance of Task.
+         *
+         * @param operation Executed operation.
+         */
+        private Task(Supplier<T> operation) {
+            this.operation = operation;
+        }
+
+        /**
+         * Executes the operation, unless the future was already completed, e.g. cancelled.
+         */
+        private void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(operation.get());
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,759 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Operations that cache results of {@code fetchOne} and {@code fetchMany} keyed by SQL, mapper and parameter values.
+ * <p>
+ * Cache is bounded by total weight of cached results, where a list weighs as many units as it has elements and any
+ * other result weighs one unit. Concurrent requests for the same missing result are served by a single query.
+ * Every update executed through this object invalidates cached results of queries reading the updated table. Tables
+ * are recognized in SQL text by {@code FROM} and {@code JOIN} clauses of queries and by the target of {@code INSERT},
+ * {@code UPDATE}, {@code DELETE} and {@code MERGE} statements, and are matched by unqualified name, so
+ * {@code public.users} and {@code users} are the same table. Results of queries whose sources are not all plain tables,
+ * e.g. comma joins, subqueries or table functions, are invalidated by every update. Updates of unrecognized tables
+ * invalidate whole cache.
+ * <p>
+ * Results of {@code fetch} and {@code fetchStream} are not cached. Failed queries are not cached.
+ *
+ * @author Dariusz Szwarc
+ */
+public final class CachingOperations implements Operations {
+
+    /**
+     * Pattern matching sources of a query. The first group matches a table name when the source is a plain table,
+     * optionally followed by an alias, and is null for subqueries, table functions and comma-separated lists.
+     */
+    private static final Pattern READ_SOURCE = Pattern.compile("(?i)\\b(?:FROM|JOIN)\\s++(?:([\\w.$\"`\\[\\]]++)"
+            + "(?!\\s*\\()(?:\\s++(?:AS\\s++)?+(?!(?:WHERE|JOIN|INNER|LEFT|RIGHT|FULL|CROSS|NATURAL|OUTER|ON|USING"
+            + "|GROUP|ORDER|HAVING|LIMIT|OFFSET|FETCH|FOR|UNION|EXCEPT|INTERSECT|MINUS|WINDOW)\\b)\\w++)?+(?!\\s*,)|)");
+
+    /**
+     * Pseudo table read by queries whose tables are not all recognized. It is invalidated by every update.
+     */
+    private static final String UNKNOWN_TABLE = "";
+
+    /**
+     * Tables of a query whose tables are not all recognized.
+     */
+    private static final String[] UNKNOWN_TABLES = {UNKNOWN_TABLE};
+
+    /**
+     * Maximum number of SQL texts whose tables are remembered, so that SQL with concatenated literals does not grow
+     * memory without bound. Tables of other SQL texts are found on every execution.
+     */
+    private static final int MAX_PARSED_STATEMENTS = 4096;
+
+    /**
+     * Pattern matching table modified by an update.
+     */
+    private static final Pattern WRITTEN_TABLE = Pattern.compile(
+            "(?i)^\\s*(?:UPDATE|INSERT\\s+INTO|DELETE\\s+FROM|MERGE\\s+INTO|REPLACE\\s+INTO)\\s+([\\w.$\"`\\[\\]]+)");
+
+    /**
+     * Operations used to execute queries.
+     */
+    private final Operations operations;
+
+    /**
+     * Maximum total weight of cached results.
+     */
+    private final long maximumWeight;
+
+    /**
+     * Time to live of cached results of queries without specific time to live, in nanoseconds.
+     */
+    private final long defaultTtl;
+
+    /**
+     * Times to live by SQL query, in nanoseconds.
+     */
+    private final Map<String, Long> ttls = new ConcurrentHashMap<>();
+
+    /**
+     * Tables read by SQL query.
+     */
+    private final Map<String, String[]> readTables = new ConcurrentHashMap<>();
+
+    /**
+     * Tables modified by SQL update.
+     */
+    private final Map<String, String[]> writtenTables = new ConcurrentHashMap<>();
+
+    /**
+     * Versions of tables, incremented when the table is updated.
+     */
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Version of whole cache, incremented when unrecognized table is updated.
+     */
+    private final AtomicLong globalVersion = new AtomicLong();
+
+    /**
+     * Cached entries.
+     */
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Cached entries in eviction order.
+     */
+    private final Queue<Entry> evictionQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Total weight of cached results.
+     */
+    private final AtomicLong weight = new AtomicLong();
+
+    /**
+     * Number of results found in cache.
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * Number of results that had to be fetched.
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Number of results evicted due to weight bound.
+     */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates instance of CachingOperations.
+     *
+     * @param operations    Operations used to execute queries.
+     * @param maximumWeight Maximum total weight of cached results.
+     * @param defaultTtl    Time to live of cached results.
+     */
+    private CachingOperations(Operations operations, long maximumWeight, Duration defaultTtl) {
+        if (maximumWeight < 1) {
+            throw new IllegalArgumentException("Maximum weight must be positive: " + maximumWeight);
+        }
+        this.operations = requireNonNull(operations, "operations");
+        this.maximumWeight = maximumWeight;
+        this.defaultTtl = requireNonNull(defaultTtl, "ttl").toNanos();
+    }
+
+    /**
+     * Creates CachingOperations.
+     *
+     * @param operations    Operations that will be used to execute queries.
+     * @param maximumWeight Maximum total weight of cached results, i.e. approximately the number of cached rows.
+     * @param ttl           Time to live of cached results.
+     * @return New CachingOperations object.
+     */
+    public static CachingOperations create(Operations operations, long maximumWeight, Duration ttl) {
+        return new CachingOperations(operations, maximumWeight, ttl);
+    }
+
+    /**
+     * Sets time to live of cached results of a query. Results already cached keep their time to live.
+     *
+     * @param sql SQL query.
+     * @param ttl Time to live of results of the query.
+     * @return This object.
+     */
+    public CachingOperations ttl(String sql, Duration ttl) {
+        ttls.put(requireNonNull(sql, "sql"), requireNonNull(ttl, "ttl").toNanos());
+        return this;
+    }
+
+    /**
+     * Invalidates cached results of queries reading a table.
+     *
+     * @param table Name of the table.
+     */
+    public void invalidate(String table) {
+        versions.computeIfAbsent(normalize(table), key -> new AtomicLong()).incrementAndGet();
+        versions.computeIfAbsent(UNKNOWN_TABLE, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Invalidates all cached results.
+     */
+    public void invalidateAll() {
+        globalVersion.incrementAndGet();
+    }
+
+    /**
+     * @return Number of results found in cache.
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return Number of results that had to be fetched.
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return Number of results evicted due to weight bound.
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return Total weight of cached results.
+     */
+    public long weight() {
+        return weight.get();
+    }
+
+    @Override
+    public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper) {
+        return fetchOne(sql, mapper, Setter.noParameters(), new Key(sql, mapper, null));
+    }
+
+    @Override
+    public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper, Object parameter) {
+        if (parameter instanceof Collection) {
+            return fetchOne(sql, mapper, new Object[]{parameter});
+        }
+        return fetchOne(sql, mapper, Setter.forParameter(parameter), new Key(sql, mapper, new Object[]{parameter}));
+    }
+
+    @Override
+    public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper, Object... parameters) {
+        if (InListExpansion.containsCollection(parameters)) {
+            var expanded = InListExpansion.expand(sql, parameters);
+            return fetchOne(expanded.sql(), mapper, expanded.parameters());
+        }
+        return fetchOne(sql, mapper, Setter.forParameters(parameters), new Key(sql, mapper, parameters.clone()));
+    }
+
+    @Override
+    public <T> List<T> fetchMany(String sql, RowMapper<T> mapper) {
+        return fetchMany(sql, mapper, Setter.noParameters(), new Key(sql, mapper, null));
+    }
+
+    @Override
+    public <T> List<T> fetchMany(String sql, RowMapper<T> mapper, Object parameter) {
+        if (parameter instanceof Collection) {
+            return fetchMany(sql, mapper, new Object[]{parameter});
+        }
+        return fetchMany(sql, mapper, Setter.forParameter(parameter), new Key(sql, mapper, new Object[]{parameter}));
+    }
+
+    @Override
+    public <T> List<T> fetchMany(String sql, RowMapper<T> mapper, Object... parameters) {
+        if (InListExpansion.containsCollection(parameters)) {
+            var expanded = InListExpansion.expand(sql, parameters);
+            return fetchMany(expanded.sql(), mapper, expanded.parameters());
+        }
+        return fetchMany(sql, mapper, Setter.forParameters(parameters), new Key(sql, mapper, parameters.clone()));
+    }
+
+    @Override
+    public <T> Stream<T> fetchStream(String sql, RowMapper<T> mapper, Object... parameters) {
+        return operations.fetchStream(sql, mapper, parameters);
+    }
+
+    @Override
+    public <T> Stream<T> fetchStream(String sql, Setter setter, RowMapper<T> mapper, int fetchSize,
+                                     Handler<Stream<T>> handler) {
+        return operations.fetchStream(sql, setter, mapper, fetchSize, handler);
+    }
+
+    @Override
+    public <T> T fetch(String sql, Setter setter, Extractor<T> extractor, Handler<T> handler) {
+        return operations.fetch(sql, setter, extractor, handler);
+    }
+
+    @Override
+    public int update(String sql) {
+        try {
+            return operations.update(sql);
+        } finally {
+            invalidateWritten(sql);
+        }
+    }
+
+    @Override
+    public int update(String sql, Object parameter) {
+        try {
+            return operations.update(sql, parameter);
+        } finally {
+            invalidateWritten(sql);
+        }
+    }
+
+    @Override
+    public int update(String sql, Object... parameters) {
+        try {
+            return operations.update(sql, parameters);
+        } finally {
+            invalidateWritten(sql);
+        }
+    }
+
+    @Override
+    public int update(String sql, Setter setter, Handler<Integer> handler) {
+        try {
+            return operations.update(sql, setter, handler);
+        } finally {
+            invalidateWritten(sql);
+        }
+    }
+
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> parameters, int batchSize) {
+        try {
+            return operations.updateBatch(sql, parameters, batchSize);
+        } finally {
+            invalidateWritten(sql);
+        }
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Iterable<T> items, Binder<T> binder, int batchSize,
+                                 Handler<Integer> handler) {
+        try {
+            return operations.updateBatch(sql, items, binder, batchSize, handler);
+        } finally {
+            invalidateWritten(sql);
+        }
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Stream<T> items, Binder<T> binder, int batchSize,
+                                 Handler<Integer> handler) {
+        try {
+            return operations.updateBatch(sql, items, binder, batchSize, handler);
+        } finally {
+            invalidateWritten(sql);
+        }
+    }
+
+    /**
+     * Fetches a single object from cache or database.
+     *
+     * @param sql    SQL query.
+     * @param mapper Mapper used to map result set.
+     * @param setter Setter of parameters for parameterized SQL query.
+     * @param key    Key of cached result.
+     * @param <T>    Type of produced object.
+     * @return {@code Optional} of result or empty if the database does not contain any results.
+     */
+    private <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper, Setter setter, Key key) {
+        Handler<Optional<T>> empty = Handler.returning(e -> Optional.empty());
+        return get(key, () -> operations.fetch(sql, setter, Extractor.extractOne(mapper, empty),
+                Handler.throwing(UncheckedSQLException::new)), Optional.empty());
+    }
+
+    /**
+     * Fetches a list of objects from cache or database.
+     *
+     * @param sql    SQL query.
+     * @param mapper Mapper used to map result set.
+     * @param setter Setter of parameters for parameterized SQL query.
+     * @param key    Key of cached result.
+     * @param <T>    Type of produced object.
+     * @return {@code List} of results.
+     */
+    private <T> List<T> fetchMany(String sql, RowMapper<T> mapper, Setter setter, Key key) {
+        Handler<List<T>> empty = Handler.returning(e -> Collections.emptyList());
+        return get(key, () -> Collections.unmodifiableList(operations.fetch(sql, setter,
+                Extractor.extractMany(mapper, empty), Handler.throwing(UncheckedSQLException::new))),
+                Collections.emptyList());
+    }
+
+    /**
+     * Returns cached result or loads it. Only one of concurrent callers requesting the same missing result loads it,
+     * others wait for the result.
+     *
+     * @param key      Key of cached result.
+     * @param loader   Loader of result, throwing {@link UncheckedSQLException} on failure.
+     * @param fallback Result returned when loading fails.
+     * @param <V>      Type of result.
+     * @return Cached or loaded result.
+     */
+    @SuppressWarnings("unchecked")
+    private <V> V get(Key key, Supplier<V> loader, V fallback) {
+        var tables = tables(key.sql, readTables, CachingOperations::parseReadTables);
+        while (true) {
+            var entry = entries.get(key);
+            if (entry != null && entry.isValid(System.nanoTime())) {
+                entry.referenced = true;
+                hits.increment();
+                try {
+                    return (V) entry.value.join();
+                } catch (CompletionException e) {
+                    return fallback;
+                }
+            }
+            var created = new Entry(key, tables, versions(tables));
+            if (entry == null ? entries.putIfAbsent(key, created) != null : !entries.replace(key, entry, created)) {
+                continue;
+            }
+            if (entry != null) {
+                release(entry);
+            }
+            misses.increment();
+            return load(created, loader, fallback);
+        }
+    }
+
+    /**
+     * Loads result of a newly created entry.
+     *
+     * @param entry    Entry whose result is loaded.
+     * @param loader   Loader of result.
+     * @param fallback Result returned when loading fails.
+     * @param <V>      Type of result.
+     * @return Loaded result.
+     */
+    private <V> V load(Entry entry, Supplier<V> loader, V fallback) {
+        V value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            entries.remove(entry.key, entry);
+            entry.value.completeExceptionally(e);
+            if (e instanceof UncheckedSQLException) {
+                return fallback;
+            }
+            throw e;
+        }
+        entry.expiresAt = System.nanoTime() + ttls.getOrDefault(entry.key.sql, defaultTtl);
+        entry.weight = value instanceof List ? Math.max(1, ((List<?>) value).size()) : 1;
+        if (isCurrent(entry)) {
+            weight.addAndGet(entry.weight);
+            evictionQueue.add(entry);
+        } else {
+            entry.removed = true;
+            entries.remove(entry.key, entry);
+        }
+        entry.value.complete(value);
+        evict();
+        return value;
+    }
+
+    /**
+     * Evicts entries until total weight is within bound. Recently used entries get a second chance.
+     */
+    private void evict() {
+        while (weight.get() > maximumWeight) {
+            var entry = evictionQueue.poll();
+            if (entry == null) {
+                return;
+            }
+            if (entry.removed) {
+                continue;
+            }
+            if (entry.referenced && entry.isValid(System.nanoTime())) {
+                entry.referenced = false;
+                evictionQueue.add(entry);
+                continue;
+            }
+            if (entries.remove(entry.key, entry)) {
+                evictions.increment();
+            }
+            release(entry);
+        }
+    }
+
+    /**
+     * Releases weight of an entry that is no longer cached.
+     *
+     * @param entry Released entry.
+     */
+    private void release(Entry entry) {
+        synchronized (entry) {
+            if (entry.removed) {
+                return;
+            }
+            entry.removed = true;
+        }
+        weight.addAndGet(-entry.weight);
+    }
+
+    /**
+     * Invalidates cached results of queries reading table modified by an update.
+     *
+     * @param sql SQL update.
+     */
+    private void invalidateWritten(String sql) {
+        var written = tables(sql, writtenTables, CachingOperations::parseWrittenTables);
+        if (written.length == 0) {
+            invalidateAll();
+            return;
+        }
+        for (var table : written) {
+            versions.computeIfAbsent(table, key -> new AtomicLong()).incrementAndGet();
+        }
+        versions.computeIfAbsent(UNKNOWN_TABLE, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Reads current versions of tables.
+     *
+     * @param tables Tables read by a query.
+     * @return Global version followed by versions of the tables.
+     */
+    private long[] versions(String[] tables) {
+        var result = new long[tables.length + 1];
+        result[0] = globalVersion.get();
+        for (int i = 0; i < tables.length; i++) {
+            result[i + 1] = versions.computeIfAbsent(tables[i], key -> new AtomicLong()).get();
+        }
+        return result;
+    }
+
+    /**
+     * Checks whether tables read by cached result were not updated since the result started loading.
+     *
+     * @param entry Checked entry.
+     * @return Whether versions of all read tables are unchanged.
+     */
+    private boolean isCurrent(Entry entry) {
+        if (entry.versions[0] != globalVersion.get()) {
+            return false;
+        }
+        for (int i = 0; i < entry.tables.length; i++) {
+            if (entry.versions[i + 1] != versions.get(entry.tables[i]).get()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds tables in SQL text, remembering them for a bounded number of SQL texts.
+     *
+     * @param sql    SQL text.
+     * @param cache  Tables already found by SQL text.
+     * @param parser Parser of tables in SQL text.
+     * @return Normalized table names.
+     */
+    private static String[] tables(String sql, Map<String, String[]> cache, Function<String, String[]> parser) {
+        var tables = cache.get(sql);
+        if (tables == null) {
+            tables = parser.apply(sql);
+            if (cache.size() < MAX_PARSED_STATEMENTS) {
+                cache.putIfAbsent(sql, tables);
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Finds tables read by a query.
+     *
+     * @param sql SQL query.
+     * @return Normalized table names or {@link #UNKNOWN_TABLES} when any source of the query is not a plain table.
+     */
+    private static String[] parseReadTables(String sql) {
+        var matcher = READ_SOURCE.matcher(sql);
+        Set<String> tables = new LinkedHashSet<>();
+        while (matcher.find()) {
+            if (matcher.group(1) == null) {
+                return UNKNOWN_TABLES;
+            }
+            tables.add(normalize(matcher.group(1)));
+        }
+        return tables.isEmpty() ? UNKNOWN_TABLES : tables.toArray(String[]::new);
+    }
+
+    /**
+     * Finds tables modified by an update.
+     *
+     * @param sql SQL update.
+     * @return Normalized table names, empty when the table is not recognized.
+     */
+    private static String[] parseWrittenTables(String sql) {
+        return WRITTEN_TABLE.matcher(sql).results()
+                .map(match -> normalize(match.group(1)))
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    /**
+     * Normalizes table name by removing quotes and schema and converting it to lower case.
+     *
+     * @param table Table name, optionally qualified.
+     * @return Normalized unqualified table name.
+     */
+    private static String normalize(String table) {
+        var unquoted = table.replaceAll("[\"`\\[\\]]", "").toLowerCase(Locale.ROOT);
+        return unquoted.substring(unquoted.lastIndexOf('.') + 1);
+    }
+
+    /**
+     * Key of cached result.
+     */
+    private static final class Key {
+
+        /**
+         * SQL query.
+         */
+        private final String sql;
+
+        /**
+         * Mapper used to map result set.
+         */
+        private final Object mapper;
+
+        /**
+         * Parameters of the query. May be null.
+         */
+        private final Object[] parameters;
+
+        /**
+         * Hash code of the key.
+         */
+        private final int hash;
+
+        /**
+         * Creates instance of Key.
+         *
+         * @param sql        SQL query.
+         * @param mapper     Mapper used to map result set.
+         * @param parameters Parameters of the query. May be null.
+         */
+        private Key(String sql, Object mapper, Object[] parameters) {
+            this.sql = requireNonNull(sql, "sql");
+            this.mapper = mapper;
+            this.parameters = parameters;
+            this.hash = 31 * (31 * sql.hashCode() + System.identityHashCode(mapper))
+                    + Arrays.deepHashCode(parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            var key = (Key) o;
+            return hash == key.hash && mapper == key.mapper && sql.equals(key.sql)
+                    && Arrays.deepEquals(parameters, key.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Cached result.
+     */
+    private final class Entry {
+
+        /**
+         * Key of the result.
+         */
+        private final Key key;
+
+        /**
+         * Tables read by the query.
+         */
+        private final String[] tables;
+
+        /**
+         * Global version followed by versions of read tables, at the time the result started loading.
+         */
+        private final long[] versions;
+
+        /**
+         * Future completed with the result.
+         */
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+
+        /**
+         * Time after which the result expires, as per {@link System#nanoTime()}.
+         */
+        private volatile long expiresAt;
+
+        /**
+         * Weight of the result.
+         */
+        private volatile int weight;
+
+        /**
+         * Whether the result was used since it was last considered for eviction.
+         */
+        private volatile boolean referenced;
+
+        /**
+         * Whether weight of the entry was released or never accounted.
+         */
+        private volatile boolean removed;
+
+        /**
+         * Creates instance of Entry.
+         *
+         * @param key      Key of the result.
+         * @param tables   Tables read by the query.
+         * @param versions Global version followed by versions of read tables.
+         */
+        private Entry(Key key, String[] tables, long[] versions) {
+            this.key = key;
+            this.tables = tables;
+            this.versions = versions;
+        }
+
+        /**
+         * @param now Current time, as per {@link System#nanoTime()}.
+         * @return Whether the result is still loading or is neither expired nor invalidated.
+         */
+        private boolean isValid(long now) {
+            if (!value.isDone()) {
+                return true;
+            }
+            return now - expiresAt < 0 && isCurrent(this);
+        }
+    }
+}
@@ -0,0 +1,631 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Result set stored column by column in primitive arrays. Integer columns and decimal columns without fraction digits
+ * and at most 18 digits of precision are stored as {@code int[]} or {@code long[]}, floating point columns as
+ * {@code double[]}, other decimal columns as {@link BigDecimal} values and all other columns as dictionary encoded
+ * strings. Nulls are tracked in bitmaps.
+ *
+ * @author Dariusz Szwarc
+ * @see Extractor#extractColumns()
+ */
+public final class ColumnarResult {
+
+    /**
+     * Initial capacity of columns.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Maximal precision of decimal columns stored as {@code long} values.
+     */
+    private static final int MAX_LONG_PRECISION = 18;
+
+    /**
+     * Columns in result set order.
+     */
+    private final List<Column> columns;
+
+    /**
+     * Number of rows.
+     */
+    private final int rows;
+
+    /**
+     * Creates instance of ColumnarResult.
+     *
+     * @param columns Columns in result set order.
+     * @param rows    Number of rows.
+     */
+    private ColumnarResult(List<Column> columns, int rows) {
+        this.columns = Collections.unmodifiableList(columns);
+        this.rows = rows;
+    }
+
+    /**
+     * Reads all remaining rows of result set.
+     *
+     * @param resultSet Result set positioned before first row to be read.
+     * @return Columnar result.
+     * @throws SQLException when result set raises an exception during processing.
+     */
+    static ColumnarResult read(ResultSet resultSet) throws SQLException {
+        var metaData = resultSet.getMetaData();
+        var columns = new Column[metaData.getColumnCount()];
+        for (int i = 0; i < columns.length; i++) {
+            var label = metaData.getColumnLabel(i + 1);
+            switch (metaData.getColumnType(i + 1)) {
+                case Types.BIGINT -> columns[i] = new LongColumn(label);
+                case Types.INTEGER, Types.SMALLINT, Types.TINYINT, Types.BIT, Types.BOOLEAN ->
+                        columns[i] = new IntColumn(label);
+                case Types.DOUBLE, Types.FLOAT, Types.REAL -> columns[i] = new DoubleColumn(label);
+                case Types.DECIMAL, Types.NUMERIC -> {
+                    int precision = metaData.getPrecision(i + 1);
+                    if (metaData.getScale(i + 1) == 0 && precision > 0 && precision <= MAX_LONG_PRECISION) {
+                        columns[i] = new LongColumn(label);
+                    } else {
+                        columns[i] = new DecimalColumn(label);
+                    }
+                }
+                default -> columns[i] = new StringColumn(label);
+            }
+        }
+        int capacity = INITIAL_CAPACITY;
+        int row = 0;
+        while (resultSet.next()) {
+            if (row == capacity) {
+                capacity = Math.multiplyExact(capacity, 2);
+                for (var column : columns) {
+                    column.resize(capacity);
+                }
+            }
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].read(resultSet, i + 1, row);
+            }
+            row++;
+        }
+        for (var column : columns) {
+            column.complete(row);
+        }
+        return new ColumnarResult(Arrays.asList(columns), row);
+    }
+
+    /**
+     * @return Number of rows.
+     */
+    public int rowCount() {
+        return rows;
+    }
+
+    /**
+     * @return Columns in result set order.
+     */
+    public List<Column> columns() {
+        return columns;
+    }
+
+    /**
+     * Finds a column by label.
+     *
+     * @param label Label of the column, case insensitive.
+     * @return Found column.
+     * @throws IllegalArgumentException When there is no such column.
+     */
+    public Column column(String label) {
+        for (var column : columns) {
+            if (column.label.equalsIgnoreCase(label)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException("No column " + label);
+    }
+
+    /**
+     * Finds a column of {@code BIGINT} values, or decimal values without fraction digits and with at most 18 digits of
+     * precision, by label.
+     *
+     * @param label Label of the column, case insensitive.
+     * @return Found column.
+     * @throws IllegalArgumentException When there is no such column or it has different type.
+     */
+    public LongColumn longColumn(String label) {
+        return column(label, LongColumn.class);
+    }
+
+    /**
+     * Finds a column of {@code INTEGER}, {@code SMALLINT}, {@code TINYINT} or boolean values by label.
+     *
+     * @param label Label of the column, case insensitive.
+     * @return Found column.
+     * @throws IllegalArgumentException When there is no such column or it has different type.
+     */
+    public IntColumn intColumn(String label) {
+        return column(label, IntColumn.class);
+    }
+
+    /**
+     * Finds a column of floating point values by label.
+     *
+     * @param label Label of the column, case insensitive.
+     * @return Found column.
+     * @throws IllegalArgumentException When there is no such column or it has different type.
+     */
+    public DoubleColumn doubleColumn(String label) {
+        return column(label, DoubleColumn.class);
+    }
+
+    /**
+     * Finds a column of decimal values not stored as {@code long} values by label.
+     *
+     * @param label Label of the column, case insensitive.
+     * @return Found column.
+     * @throws IllegalArgumentException When there is no such column or it has different type.
+     */
+    public DecimalColumn decimalColumn(String label) {
+        return column(label, DecimalColumn.class);
+    }
+
+    /**
+     * Finds a column of string values by label.
+     *
+     * @param label Label of the column, case insensitive.
+     * @return Found column.
+     * @throws IllegalArgumentException When there is no such column or it has different type.
+     */
+    public StringColumn stringColumn(String label) {
+        return column(label, StringColumn.class);
+    }
+
+    /**
+     * Finds a column of provided type.
+     *
+     * @param label Label of the column, case insensitive.
+     * @param type  Type of the column.
+     * @param <C>   Type of the column.
+     * @return Found column.
+     */
+    private <C extends Column> C column(String label, Class<C> type) {
+        var column = column(label);
+        if (!type.isInstance(column)) {
+            throw new IllegalArgumentException("Column " + label + " is " + column.getClass().getSimpleName());
+        }
+        return type.cast(column);
+    }
+
+    /**
+     * Column of values.
+     */
+    public abstract static class Column {
+
+        /**
+         * Label of the column.
+         */
+        private final String label;
+
+        /**
+         * Bitmap of rows containing null.
+         */
+        private long[] nulls = new long[INITIAL_CAPACITY / Long.SIZE];
+
+        /**
+         * Number of nulls.
+         */
+        private int nullCount;
+
+        /**
+         * Number of rows.
+         */
+        int size;
+
+        /**
+         * Creates instance of Column.
+         *
+         * @param label Label of the column.
+         */
+        Column(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return Label of the column.
+         */
+        public String label() {
+            return label;
+        }
+
+        /**
+         * @return Number of rows.
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @param row Index of row, starting from 0.
+         * @return Whether the row contains null.
+         */
+        public boolean isNull(int row) {
+            return (nulls[row >>> 6] & (1L << row)) != 0;
+        }
+
+        /**
+         * @return Number of rows containing null.
+         */
+        public int nullCount() {
+            return nullCount;
+        }
+
+        /**
+         * @return Stream of indices of rows not containing null.
+         */
+        IntStream nonNullRows() {
+            return IntStream.range(0, size).filter(row -> !isNull(row));
+        }
+
+        /**
+         * Reads value of current row.
+         *
+         * @param resultSet Result set positioned at the row.
+         * @param column    Index of column in result set.
+         * @param row       Index of row in this column.
+         * @throws SQLException when result set raises an exception during processing.
+         */
+        abstract void read(ResultSet resultSet, int column, int row) throws SQLException;
+
+        /**
+         * Resizes arrays holding values to exactly provided capacity.
+         *
+         * @param capacity New capacity.
+         */
+        void resize(int capacity) {
+            nulls = Arrays.copyOf(nulls, (capacity + Long.SIZE - 1) / Long.SIZE);
+        }
+
+        /**
+         * Completes reading, trimming arrays holding values to the number of read rows.
+         *
+         * @param rows Number of read rows.
+         */
+        void complete(int rows) {
+            resize(rows);
+            size = rows;
+        }
+
+        /**
+         * Marks row as null if last read value was null.
+         *
+         * @param resultSet Result set that read the value.
+         * @param row       Index of row.
+         * @throws SQLException when result set raises an exception during processing.
+         */
+        void checkNull(ResultSet resultSet, int row) throws SQLException {
+            if (resultSet.wasNull()) {
+                nulls[row >>> 6] |= 1L << row;
+                nullCount++;
+            }
+        }
+    }
+
+    /**
+     * Column of {@code long} values. Nulls are stored as zero.
+     */
+    public static final class LongColumn extends Column {
+
+        /**
+         * Values by row.
+         */
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        /**
+         * Creates instance of LongColumn.
+         *
+         * @param label Label of the column.
+         */
+        private LongColumn(String label) {
+            super(label);
+        }
+
+        /**
+         * @param row Index of row, starting from 0.
+         * @return Value of the row, zero for null.
+         */
+        public long get(int row) {
+            return values[row];
+        }
+
+        /**
+         * @return Stream of values, skipping nulls.
+         */
+        public LongStream stream() {
+            return nullCount() == 0 ? Arrays.stream(values, 0, size) : nonNullRows().mapToLong(row -> values[row]);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int column, int row) throws SQLException {
+            values[row] = resultSet.getLong(column);
+            checkNull(resultSet, row);
+        }
+
+        @Override
+        void resize(int capacity) {
+            super.resize(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    /**
+     * Column of {@code int} values. Nulls are stored as zero and booleans as one and zero.
+     */
+    public static final class IntColumn extends Column {
+
+        /**
+         * Values by row.
+         */
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        /**
+         * Creates instance of IntColumn.
+         *
+         * @param label Label of the column.
+         */
+        private IntColumn(String label) {
+            super(label);
+        }
+
+        /**
+         * @param row Index of row, starting from 0.
+         * @return Value of the row, zero for null.
+         */
+        public int get(int row) {
+            return values[row];
+        }
+
+        /**
+         * @return Stream of values, skipping nulls.
+         */
+        public IntStream stream() {
+            return nullCount() == 0 ? Arrays.stream(values, 0, size) : nonNullRows().map(row -> values[row]);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int column, int row) throws SQLException {
+            values[row] = resultSet.getInt(column);
+            checkNull(resultSet, row);
+        }
+
+        @Override
+        void resize(int capacity) {
+            super.resize(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    /**
+     * Column of {@code double} values. Nulls are stored as zero.
+     */
+    public static final class DoubleColumn extends Column {
+
+        /**
+         * Values by row.
+         */
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        /**
+         * Creates instance of DoubleColumn.
+         *
+         * @param label Label of the column.
+         */
+        private DoubleColumn(String label) {
+            super(label);
+        }
+
+        /**
+         * @param row Index of row, starting from 0.
+         * @return Value of the row, zero for null.
+         */
+        public double get(int row) {
+            return values[row];
+        }
+
+        /**
+         * @return Stream of values, skipping nulls.
+         */
+        public DoubleStream stream() {
+            return nullCount() == 0 ? Arrays.stream(values, 0, size)
+                    : nonNullRows().mapToDouble(row -> values[row]);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int column, int row) throws SQLException {
+            values[row] = resultSet.getDouble(column);
+            checkNull(resultSet, row);
+        }
+
+        @Override
+        void resize(int capacity) {
+            super.resize(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    /**
+     * Column of {@link BigDecimal} values.
+     */
+    public static final class DecimalColumn extends Column {
+
+        /**
+         * Values by row, null for null.
+         */
+        private BigDecimal[] values = new BigDecimal[INITIAL_CAPACITY];
+
+        /**
+         * Creates instance of DecimalColumn.
+         *
+         * @param label Label of the column.
+         */
+        private DecimalColumn(String label) {
+            super(label);
+        }
+
+        /**
+         * @param row Index of row, starting from 0.
+         * @return Value of the row, null for null.
+         */
+        public BigDecimal get(int row) {
+            return values[row];
+        }
+
+        /**
+         * @return Stream of values, skipping nulls.
+         */
+        public Stream<BigDecimal> stream() {
+            return nullCount() == 0 ? Arrays.stream(values, 0, size) : nonNullRows().mapToObj(row -> values[row]);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int column, int row) throws SQLException {
+            values[row] = resultSet.getBigDecimal(column);
+            checkNull(resultSet, row);
+        }
+
+        @Override
+        void resize(int capacity) {
+            super.resize(capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    /**
+     * Column of dictionary encoded strings. Every distinct string is stored once and rows refer to it by code.
+     */
+    public static final class StringColumn extends Column {
+
+        /**
+         * Codes of dictionary entries by row, -1 for null.
+         */
+        private int[] codes = new int[INITIAL_CAPACITY];
+
+        /**
+         * Distinct values by code.
+         */
+        private final List<String> dictionary = new ArrayList<>();
+
+        /**
+         * Codes by distinct value, dropped once reading is completed.
+         */
+        private Map<String, Integer> lookup = new HashMap<>();
+
+        /**
+         * Creates instance of StringColumn.
+         *
+         * @param label Label of the column.
+         */
+        private StringColumn(String label) {
+            super(label);
+        }
+
+        /**
+         * @param row Index of row, starting from 0.
+         * @return Value of the row, null for null.
+         */
+        public String get(int row) {
+            int code = codes[row];
+            return code < 0 ? null : dictionary.get(code);
+        }
+
+        /**
+         * @param row Index of row, starting from 0.
+         * @return Code of value of the row in the dictionary, -1 for null.
+         */
+        public int code(int row) {
+            return codes[row];
+        }
+
+        /**
+         * @return Distinct values, indexed by code.
+         */
+        public List<String> dictionary() {
+            return Collections.unmodifiableList(dictionary);
+        }
+
+        /**
+         * @return Stream of codes, skipping nulls.
+         */
+        public IntStream codes() {
+            return nullCount() == 0 ? Arrays.stream(codes, 0, size) : nonNullRows().map(row -> codes[row]);
+        }
+
+        /**
+         * @return Stream of values, skipping nulls.
+         */
+        public Stream<String> stream() {
+            return codes().mapToObj(dictionary::get);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int column, int row) throws SQLException {
+            var value = resultSet.getString(column);
+            if (value == null) {
+                codes[row] = -1;
+                checkNull(resultSet, row);
+                return;
+            }
+            var code = lookup.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.add(value);
+                lookup.put(value, code);
+            }
+            codes[row] = code;
+        }
+
+        @Override
+        void resize(int capacity) {
+            super.resize(capacity);
+            codes = Arrays.copyOf(codes, capacity);
+        }
+
+        @Override
+        void complete(int rows) {
+            super.complete(rows);
+            lookup = null;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Mapper that compiles a mapping plan for every distinct set of result set column labels. The plan binds column
+ * indices and typed getters of {@link ResultSet} into a single method handle, so mapping of a row does not look up
+ * columns by name. Extractors find the plan once per result set using {@link #bind(ResultSet)}. When {@link #map} is
+ * called without binding, the plan of the last mapped result set is reused, so metadata is read again only for
+ * another result set. The mapper refers to the last result set only weakly and may be shared by threads.
+ *
+ * @param <T> Type of produced object.
+ * @author Dariusz Szwarc
+ */
+abstract class CompiledMapper<T> implements RowMapper<T> {
+
+    /**
+     * Lookup used to find getters of {@link ResultSet}.
+     */
+    private static final MethodHandles.Lookup RESULT_SET_LOOKUP = MethodHandles.publicLookup();
+
+    /**
+     * Names of typed getters of {@link ResultSet} for supported types.
+     */
+    private static final Map<Class<?>, String> GETTERS = Map.ofEntries(
+            Map.entry(boolean.class, "getBoolean"),
+            Map.entry(byte.class, "getByte"),
+            Map.entry(short.class, "getShort"),
+            Map.entry(int.class, "getInt"),
+            Map.entry(long.class, "getLong"),
+            Map.entry(float.class, "getFloat"),
+            Map.entry(double.class, "getDouble"),
+            Map.entry(String.class, "getString"),
+            Map.entry(BigDecimal.class, "getBigDecimal"),
+            Map.entry(byte[].class, "getBytes"),
+            Map.entry(Date.class, "getDate"),
+            Map.entry(Time.class, "getTime"),
+            Map.entry(Timestamp.class, "getTimestamp"));
+
+    /**
+     * Compiled plans by column labels of result set.
+     */
+    private final Map<List<String>, RowMapper<T>> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Plan of the result set mapped last without binding, null before the first such mapping.
+     */
+    private volatile LastPlan<T> last;
+
+    @Override
+    public final T map(ResultSet resultSet) throws SQLException {
+        var cached = last;
+        if (cached == null || cached.get() != resultSet) {
+            cached = new LastPlan<>(resultSet, plan(resultSet));
+            last = cached;
+        }
+        return cached.plan.map(resultSet);
+    }
+
+    @Override
+    public final RowMapper<T> bind(ResultSet resultSet) throws SQLException {
+        return plan(resultSet);
+    }
+
+    /**
+     * Finds or compiles a plan for result set.
+     *
+     * @param resultSet Result set that will be mapped.
+     * @return Plan mapping rows of result set.
+     * @throws SQLException When metadata of result set can not be obtained or plan can not be compiled.
+     */
+    private RowMapper<T> plan(ResultSet resultSet) throws SQLException {
+        var metaData = resultSet.getMetaData();
+        var labels = new String[metaData.getColumnCount()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = metaData.getColumnLabel(i + 1);
+        }
+        var key = List.of(labels);
+        var plan = plans.get(key);
+        if (plan == null) {
+            plan = compile(columnIndices(labels));
+            var previous = plans.putIfAbsent(key, plan);
+            if (previous != null) {
+                plan = previous;
+            }
+        }
+        return plan;
+    }
+
+    /**
+     * Compiles a plan for result set with provided columns.
+     *
+     * @param columns Indices of columns by normalized label, in order of columns.
+     * @return Plan mapping rows of result set.
+     * @throws SQLException When plan can not be compiled.
+     */
+    abstract RowMapper<T> compile(Map<String, Integer> columns) throws SQLException;
+
+    /**
+     * Normalizes a column label or property name, so that e.g. {@code first_name} matches {@code firstName}.
+     *
+     * @param name Column label or property name.
+     * @return Normalized name.
+     */
+    static String normalize(String name) {
+        return name.replace("_", "").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Creates a handle reading a column using typed getter matching provided type.
+     *
+     * @param type   Type of read value.
+     * @param column Index of column.
+     * @return Method handle of type {@code (ResultSet)type}.
+     * @throws SQLException When getter can not be found.
+     */
+    static MethodHandle getter(Class<?> type, int column) throws SQLException {
+        try {
+            var name = GETTERS.get(type);
+            if (name != null) {
+                var getter = RESULT_SET_LOOKUP.findVirtual(ResultSet.class, name, MethodType.methodType(type,
+                        int.class));
+                return MethodHandles.insertArguments(getter, 1, column);
+            }
+            var getter = RESULT_SET_LOOKUP.findVirtual(ResultSet.class, "getObject",
+                    MethodType.methodType(Object.class, int.class, Class.class));
+            return MethodHandles.insertArguments(getter, 1, column, type)
+                    .asType(MethodType.methodType(type, ResultSet.class));
+        } catch (ReflectiveOperationException e) {
+            throw new SQLException("Unable to read column " + column + " as " + type.getName(), e);
+        }
+    }
+
+    /**
+     * Rethrows a throwable raised by a method handle.
+     *
+     * @param e Raised throwable.
+     * @return Exception to be thrown, if the throwable is checked and is not an SQLException.
+     * @throws SQLException When the throwable is an SQLException.
+     */
+    static SQLException rethrow(Throwable e) throws SQLException {
+        if (e instanceof SQLException) {
+            throw (SQLException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new SQLException(e);
+    }
+
+    /**
+     * Maps normalized column labels to column indices.
+     *
+     * @param labels Column labels.
+     * @return Indices of columns by normalized label, in order of columns.
+     */
+    private static Map<String, Integer> columnIndices(String[] labels) {
+        Map<String, Integer> columns = new LinkedHashMap<>();
+        for (int i = 0; i < labels.length; i++) {
+            columns.putIfAbsent(normalize(labels[i]), i + 1);
+        }
+        return columns;
+    }
+
+    /**
+     * Describes columns for exception messages.
+     *
+     * @param columns Indices of columns by normalized label.
+     * @return Description of columns.
+     */
+    static String describe(Map<String, Integer> columns) {
+        var labels = columns.keySet().toArray(String[]::new);
+        Arrays.sort(labels);
+        return Arrays.toString(labels);
+    }
+
+    /**
+     * Plan bound to a weakly referenced result set.
+     *
+     * @param <T> Type of produced object.
+     */
+    private static final class LastPlan<T> extends WeakReference<ResultSet> {
+
+        /**
+         * Plan mapping rows of the result set.
+         */
+        private final RowMapper<T> plan;
+
+        /**
+         * Creates instance of LastPlan.
+         *
+         * @param resultSet Mapped result set.
+         * @param plan      Plan mapping rows of the result set.
+         */
+        LastPlan(ResultSet resultSet, RowMapper<T> plan) {
+            super(resultSet);
+            this.plan = plan;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limit of queries executed concurrently by a {@link DataSourceHelper}, adapted to observed round-trip times.
+ * <p>
+ * The limit grows by one after about as many fast queries as the limit allows, while the limit is actually used, and
+ * shrinks by a tenth when a query is slower than the tolerated multiple of the baseline round-trip time, at most once
+ * per round trip. The baseline is the shortest round-trip time of recent queries. Queries exceeding the limit wait for
+ * the configured time and are then rejected with {@link SQLTransientConnectionException}, which is processed by the
+ * handler of the operation, so load is shed before connection pool and database saturate.
+ * <p>
+ * A session holds one permit for its whole duration, but its duration is not used to adapt the limit.
+ * Configuration methods should be called before the limiter is used.
+ *
+ * @author Dariusz Szwarc
+ * @see DataSourceHelper#create(javax.sql.DataSource, ConcurrencyLimiter)
+ * @see DataSourceHelper.Builder#limiter(ConcurrencyLimiter)
+ */
+public final class ConcurrencyLimiter {
+
+    /**
+     * Number of samples after which the baseline round-trip time is recomputed.
+     */
+    private static final int BASELINE_WINDOW = 1000;
+
+    /**
+     * Factor by which the limit shrinks after slow query.
+     */
+    private static final double BACKOFF = 0.9;
+
+    /**
+     * Minimum limit.
+     */
+    private int minLimit = 1;
+
+    /**
+     * Maximum limit.
+     */
+    private int maxLimit = 200;
+
+    /**
+     * Multiple of baseline round-trip time above which query is considered slow.
+     */
+    private double tolerance = 2.0;
+
+    /**
+     * Maximum time of waiting for a permit, in nanoseconds.
+     */
+    private long maxWait;
+
+    /**
+     * Current limit.
+     */
+    private double limit = 20;
+
+    /**
+     * Number of queries being executed.
+     */
+    private int inFlight;
+
+    /**
+     * Baseline round-trip time, in nanoseconds.
+     */
+    private long baseline = Long.MAX_VALUE;
+
+    /**
+     * Shortest round-trip time in current window, in nanoseconds.
+     */
+    private long windowMinimum = Long.MAX_VALUE;
+
+    /**
+     * Number of samples in current window.
+     */
+    private int samples;
+
+    /**
+     * Time of last decrease of the limit, in nanoseconds.
+     */
+    private long lastDecrease = System.nanoTime();
+
+    /**
+     * Number of rejected queries.
+     */
+    private long rejections;
+
+    /**
+     * Creates instance of ConcurrencyLimiter.
+     */
+    private ConcurrencyLimiter() {
+    }
+
+    /**
+     * Creates a ConcurrencyLimiter with initial limit of 20 queries.
+     *
+     * @return New ConcurrencyLimiter object.
+     */
+    public static ConcurrencyLimiter create() {
+        return new ConcurrencyLimiter();
+    }
+
+    /**
+     * @param initialLimit Initial number of concurrent queries. Defaults to 20.
+     * @return This object.
+     */
+    public synchronized ConcurrencyLimiter initialLimit(int initialLimit) {
+        this.limit = Math.max(minLimit, Math.min(maxLimit, positive(initialLimit, "Initial limit")));
+        return this;
+    }
+
+    /**
+     * @param minLimit Minimum number of concurrent queries. Defaults to 1.
+     * @return This object.
+     */
+    public synchronized ConcurrencyLimiter minLimit(int minLimit) {
+        this.minLimit = positive(minLimit, "Minimum limit");
+        this.maxLimit = Math.max(maxLimit, minLimit);
+        this.limit = Math.max(limit, minLimit);
+        return this;
+    }
+
+    /**
+     * @param maxLimit Maximum number of concurrent queries. Defaults to 200.
+     * @return This object.
+     */
+    public synchronized ConcurrencyLimiter maxLimit(int maxLimit) {
+        this.maxLimit = positive(maxLimit, "Maximum limit");
+        this.minLimit = Math.min(minLimit, maxLimit);
+        this.limit = Math.min(limit, maxLimit);
+        return this;
+    }
+
+    /**
+     * @param tolerance Multiple of baseline round-trip time above which a query is considered slow. Defaults to 2.
+     * @return This object.
+     */
+    public synchronized ConcurrencyLimiter tolerance(double tolerance) {
+        if (!(tolerance > 1)) {
+            throw new IllegalArgumentException("Tolerance must be greater than one: " + tolerance);
+        }
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    /**
+     * @param maxWait Maximum time of waiting for a permit before the query is rejected. Defaults to zero.
+     * @return This object.
+     */
+    public synchronized ConcurrencyLimiter maxWait(Duration maxWait) {
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("Maximum wait must not be negative: " + maxWait);
+        }
+        this.maxWait = maxWait.toNanos();
+        return this;
+    }
+
+    /**
+     * @return Current number of allowed concurrent queries.
+     */
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return Number of queries being executed.
+     */
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    /**
+     * @return Number of rejected queries.
+     */
+    public synchronized long rejections() {
+        return rejections;
+    }
+
+    /**
+     * Acquires a permit, waiting for it at most the configured time.
+     *
+     * @throws SQLException When the permit could not be acquired in time.
+     */
+    synchronized void acquire() throws SQLException {
+        long deadline = System.nanoTime() + maxWait;
+        while (inFlight >= (int) limit) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                rejections++;
+                throw new SQLTransientConnectionException("Concurrency limit of " + (int) limit + " reached");
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted while waiting for a permit", e);
+            }
+        }
+        inFlight++;
+    }
+
+    /**
+     * Releases a permit and adapts the limit.
+     *
+     * @param roundTrip Round-trip time of the query, in nanoseconds, or -1 if it should not be sampled.
+     */
+    synchronized void release(long roundTrip) {
+        inFlight--;
+        if (roundTrip >= 0) {
+            baseline = Math.min(baseline, roundTrip);
+            windowMinimum = Math.min(windowMinimum, roundTrip);
+            if (++samples == BASELINE_WINDOW) {
+                baseline = windowMinimum;
+                windowMinimum = Long.MAX_VALUE;
+                samples = 0;
+            }
+            long now = System.nanoTime();
+            if (roundTrip > baseline * tolerance) {
+                if (now - lastDecrease > roundTrip) {
+                    limit = Math.max(minLimit, limit * BACKOFF);
+                    lastDecrease = now;
+                }
+            } else if ((inFlight + 1) * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Verifies that value is positive.
+     *
+     * @param value Verified value.
+     * @param name  Name of the value used in exception message.
+     * @return The value.
+     */
+    private static int positive(int value, String name) {
+        if (value < 1) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,631 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Lightweight pool of connections of a data source that does not pool connections itself.
+ * <p>
+ * A thread first tries to reuse the connection it released last, then any idle connection, and opens a new
+ * connection only when there is none, so connections are opened lazily. When the pool is full, the thread parks
+ * until a releasing thread unparks the longest waiting thread. Connections are claimed by compare-and-set, so
+ * acquiring and releasing a connection does not lock. A connection idle for longer than the validation interval is
+ * validated before it is used. Open transaction is rolled back and auto-commit mode and transaction isolation are
+ * reset when a connection is released.
+ * <p>
+ * Configuration methods should be called before the pool is used.
+ *
+ * @author Dariusz Szwarc
+ * @see DataSourceHelper#create(ConnectionPool)
+ * @see DataSourceHelper#builder(ConnectionPool)
+ */
+public final class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(ConnectionPool.class);
+
+    /**
+     * State of an idle connection.
+     */
+    private static final int IDLE = 0;
+
+    /**
+     * State of a connection in use.
+     */
+    private static final int IN_USE = 1;
+
+    /**
+     * State of a connection removed from the pool.
+     */
+    private static final int REMOVED = -1;
+
+    /**
+     * Data source providing connections.
+     */
+    private final DataSource dataSource;
+
+    /**
+     * All pooled connections.
+     */
+    private final List<Entry> entries = new CopyOnWriteArrayList<>();
+
+    /**
+     * Connection released last by a thread.
+     */
+    private final ThreadLocal<Entry> lastReleased = new ThreadLocal<>();
+
+    /**
+     * Threads waiting for a connection, in order of arrival.
+     */
+    private final Queue<Thread> parked = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Number of connections, including connections being opened.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Number of threads waiting for a connection.
+     */
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    /**
+     * Number of opened connections.
+     */
+    private final LongAdder created = new LongAdder();
+
+    /**
+     * Time of acquiring a connection, in nanoseconds.
+     */
+    private final Histogram waitTimes = new Histogram();
+
+    /**
+     * Connector acquiring connections from the pool.
+     */
+    private final Connector connector = new PoolConnector();
+
+    /**
+     * Maximum number of connections.
+     */
+    private int maxSize = 10;
+
+    /**
+     * Maximum time of waiting for a connection, in nanoseconds.
+     */
+    private long maxWait = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * Idle time after which a connection is validated, in nanoseconds.
+     */
+    private long validationInterval = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Timeout of validation, in seconds.
+     */
+    private int validationTimeout = 5;
+
+    /**
+     * Whether the pool was closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates instance of ConnectionPool.
+     *
+     * @param dataSource Data source providing connections.
+     */
+    private ConnectionPool(DataSource dataSource) {
+        this.dataSource = requireNonNull(dataSource, "data source");
+    }
+
+    /**
+     * Creates a ConnectionPool. No connection is opened until one is needed.
+     *
+     * @param dataSource Data source providing connections.
+     * @return New ConnectionPool object.
+     */
+    public static ConnectionPool create(DataSource dataSource) {
+        return new ConnectionPool(dataSource);
+    }
+
+    /**
+     * @param maxSize Maximum number of connections. Defaults to 10.
+     * @return This object.
+     */
+    public ConnectionPool maxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * @param maxWait Maximum time of waiting for a connection when the pool is full. Defaults to 30 seconds.
+     * @return This object.
+     */
+    public ConnectionPool maxWait(Duration maxWait) {
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("Maximum wait must not be negative: " + maxWait);
+        }
+        this.maxWait = maxWait.toNanos();
+        return this;
+    }
+
+    /**
+     * @param validationInterval Idle time after which a connection is validated before it is used. Defaults to 1
+     *                           second.
+     * @return This object.
+     */
+    public ConnectionPool validationInterval(Duration validationInterval) {
+        if (validationInterval.isNegative()) {
+            throw new IllegalArgumentException("Validation interval must not be negative: " + validationInterval);
+        }
+        this.validationInterval = validationInterval.toNanos();
+        return this;
+    }
+
+    /**
+     * @param validationTimeout Timeout of validation of a connection. Defaults to 5 seconds.
+     * @return This object.
+     */
+    public ConnectionPool validationTimeout(Duration validationTimeout) {
+        if (validationTimeout.isNegative()) {
+            throw new IllegalArgumentException("Validation timeout must not be negative: " + validationTimeout);
+        }
+        this.validationTimeout = (int) Math.min(validationTimeout.toSeconds(), Integer.MAX_VALUE);
+        return this;
+    }
+
+    /**
+     * @return Number of open connections.
+     */
+    public int total() {
+        return entries.size();
+    }
+
+    /**
+     * @return Number of connections in use.
+     */
+    public int active() {
+        int active = 0;
+        for (var entry : entries) {
+            if (entry.state.get() == IN_USE) {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    /**
+     * @return Number of idle connections.
+     */
+    public int idle() {
+        int idle = 0;
+        for (var entry : entries) {
+            if (entry.state.get() == IDLE) {
+                idle++;
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * @return Number of threads waiting for a connection.
+     */
+    public int waiting() {
+        return waiters.get();
+    }
+
+    /**
+     * @return Number of connections opened by the pool.
+     */
+    public long created() {
+        return created.sum();
+    }
+
+    /**
+     * @return Distribution of time of acquiring a connection, in nanoseconds.
+     */
+    public Histogram.Snapshot waitTimes() {
+        return waitTimes.snapshot();
+    }
+
+    /**
+     * Closes idle connections and prevents acquiring new ones. Connections in use are closed when released.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (var entry : entries) {
+            if (entry.state.compareAndSet(IDLE, REMOVED)) {
+                remove(entry);
+            }
+        }
+        parked.forEach(LockSupport::unpark);
+    }
+
+    /**
+     * @return Connector acquiring connections from the pool.
+     */
+    Connector connector() {
+        return connector;
+    }
+
+    /**
+     * Acquires a connection.
+     *
+     * @return Acquired connection.
+     * @throws SQLException When the pool is closed, the connection can not be opened or the wait times out.
+     */
+    private Connection acquire() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            var entry = acquire(start + maxWait);
+            return entry.connection;
+        } finally {
+            waitTimes.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Acquires a valid pooled connection.
+     *
+     * @param deadline Time when the wait times out, in nanoseconds.
+     * @return Acquired entry.
+     * @throws SQLException When the pool is closed, the connection can not be opened or the wait times out.
+     */
+    private Entry acquire(long deadline) throws SQLException {
+        while (true) {
+            checkOpen();
+            var entry = claim();
+            if (entry == null) {
+                entry = open();
+            }
+            if (entry == null) {
+                entry = await(deadline);
+            }
+            if (isValid(entry)) {
+                return entry;
+            }
+        }
+    }
+
+    /**
+     * Claims the connection released last by current thread or any idle connection.
+     *
+     * @return Claimed entry or null if there is no idle connection.
+     */
+    private Entry claim() {
+        var last = lastReleased.get();
+        if (last != null && last.state.compareAndSet(IDLE, IN_USE)) {
+            return last;
+        }
+        for (var entry : entries) {
+            if (entry.state.compareAndSet(IDLE, IN_USE)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Opens a new connection if the pool is not full.
+     *
+     * @return Entry of opened connection, in use, or null if the pool is full.
+     * @throws SQLException When the pool is closed or the connection can not be opened.
+     */
+    private Entry open() throws SQLException {
+        checkOpen();
+        int current;
+        do {
+            current = size.get();
+            if (current >= maxSize) {
+                return null;
+            }
+        } while (!size.compareAndSet(current, current + 1));
+        Entry entry;
+        try {
+            entry = new Entry(dataSource.getConnection());
+            entries.add(entry);
+            created.increment();
+            log.debug("Opened pooled connection, {} in total", current + 1);
+        } catch (SQLException | RuntimeException e) {
+            size.decrementAndGet();
+            throw e;
+        }
+        if (closed) {
+            entry.state.set(REMOVED);
+            remove(entry);
+            checkOpen();
+        }
+        return entry;
+    }
+
+    /**
+     * Waits for a connection released by another thread. The thread is parked until it is unparked by a releasing
+     * thread, and it is queued before checking for idle connections, so a release is never missed.
+     *
+     * @param deadline Time when the wait times out, in nanoseconds.
+     * @return Claimed entry.
+     * @throws SQLException When the wait times out or is interrupted.
+     */
+    private Entry await(long deadline) throws SQLException {
+        var thread = Thread.currentThread();
+        waiters.incrementAndGet();
+        parked.add(thread);
+        try {
+            while (true) {
+                checkOpen();
+                var entry = claim();
+                if (entry == null) {
+                    entry = open();
+                }
+                if (entry != null) {
+                    return entry;
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new SQLTransientConnectionException("Connection not available within timeout, "
+                            + active() + " connections in use");
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    thread.interrupt();
+                    throw new SQLTransientConnectionException("Interrupted while waiting for a connection");
+                }
+            }
+        } finally {
+            parked.remove(thread);
+            waiters.decrementAndGet();
+            signal();
+        }
+    }
+
+    /**
+     * Checks that the pool is not closed.
+     *
+     * @throws SQLTransientConnectionException When the pool is closed.
+     */
+    private void checkOpen() throws SQLTransientConnectionException {
+        if (closed) {
+            throw new SQLTransientConnectionException("Connection pool is closed");
+        }
+    }
+
+    /**
+     * Unparks the longest waiting thread, if there is one. A thread that finds no connection parks again, and a thread
+     * that stops waiting unparks the next one, so a wake-up is not lost.
+     */
+    private void signal() {
+        var waiter = parked.peek();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /**
+     * Validates a connection that was idle for longer than validation interval, removing it when invalid.
+     *
+     * @param entry Claimed entry.
+     * @return Whether the connection may be used.
+     */
+    private boolean isValid(Entry entry) {
+        if (System.nanoTime() - entry.released < validationInterval) {
+            return true;
+        }
+        try {
+            if (entry.connection.isValid(validationTimeout)) {
+                return true;
+            }
+        } catch (SQLException e) {
+            log.debug("Validation of pooled connection failed", e);
+        }
+        log.info("Removing invalid pooled connection");
+        entry.state.set(REMOVED);
+        remove(entry);
+        return false;
+    }
+
+    /**
+     * Resets and releases a connection, handing it off to a waiting thread if there is one.
+     *
+     * @param connection Released connection.
+     */
+    private void release(Connection connection) {
+        var entry = find(connection);
+        if (entry == null) {
+            throw new IllegalArgumentException("Connection does not belong to the pool");
+        }
+        if (closed || !reset(entry)) {
+            entry.state.set(REMOVED);
+            remove(entry);
+            return;
+        }
+        entry.released = System.nanoTime();
+        entry.state.set(IDLE);
+        lastReleased.set(entry);
+        signal();
+    }
+
+    /**
+     * Finds entry of a connection.
+     *
+     * @param connection Pooled connection.
+     * @return Entry of the connection or null if it does not belong to the pool.
+     */
+    private Entry find(Connection connection) {
+        var last = lastReleased.get();
+        if (last != null && last.connection == connection) {
+            return last;
+        }
+        for (var entry : entries) {
+            if (entry.connection == connection) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Rolls back open transaction and restores initial auto-commit mode and transaction isolation of a connection.
+     *
+     * @param entry Entry of the connection.
+     * @return Whether the connection may be reused.
+     */
+    private boolean reset(Entry entry) {
+        var connection = entry.connection;
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            boolean autoCommit = connection.getAutoCommit();
+            if (!autoCommit) {
+                connection.rollback();
+            }
+            if (autoCommit != entry.autoCommit) {
+                connection.setAutoCommit(entry.autoCommit);
+            }
+            if (connection.getTransactionIsolation() != entry.isolation) {
+                connection.setTransactionIsolation(entry.isolation);
+            }
+            connection.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            log.warn("Could not reset pooled connection", e);
+            return false;
+        }
+    }
+
+    /**
+     * Closes a connection removed from the pool and unparks a waiting thread, which may open a new one.
+     *
+     * @param entry Removed entry.
+     */
+    private void remove(Entry entry) {
+        if (entries.remove(entry)) {
+            size.decrementAndGet();
+            signal();
+        }
+        try {
+            entry.connection.close();
+        } catch (SQLException e) {
+            log.debug("Could not close pooled connection", e);
+        }
+    }
+
+    /**
+     * Pooled connection with its state.
+     */
+    private static final class Entry {
+
+        /**
+         * Pooled connection.
+         */
+        private final Connection connection;
+
+        /**
+         * State of the connection.
+         */
+        private final AtomicInteger state = new AtomicInteger(IN_USE);
+
+        /**
+         * Initial auto-commit mode.
+         */
+        private final boolean autoCommit;
+
+        /**
+         * Initial transaction isolation.
+         */
+        private final int isolation;
+
+        /**
+         * Time of last release, in nanoseconds.
+         */
+        private volatile long released = System.nanoTime();
+
+        /**
+         * Creates instance of Entry.
+         *
+         * @param connection Pooled connection.
+         * @throws SQLException When initial state of the connection can not be read.
+         */
+        Entry(Connection connection) throws SQLException {
+            this.connection = connection;
+            try {
+                this.autoCommit = connection.getAutoCommit();
+                this.isolation = connection.getTransactionIsolation();
+            } catch (SQLException e) {
+                connection.close();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Connector acquiring connections from the pool and closing statements.
+     */
+    private final class PoolConnector implements Connector {
+
+        @Override
+        public Connection acquire() throws SQLException {
+            return ConnectionPool.this.acquire();
+        }
+
+        @Override
+        public void release(Connection connection) {
+            ConnectionPool.this.release(connection);
+        }
+
+        @Override
+        public PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+            return connection.prepareStatement(sql);
+        }
+
+        @Override
+        public void release(String sql, PreparedStatement statement) throws SQLException {
+            statement.close();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Source of connections and prepared statements used by {@link DataSourceHelper}. Every acquired connection and
+ * prepared statement is returned to the connector, which decides whether it is closed or kept for reuse.
+ *
+ * @author Dariusz Szwarc
+ */
+interface Connector {
+
+    /**
+     * Acquires a connection.
+     *
+     * @return Acquired connection.
+     * @throws SQLException When connection can not be obtained.
+     */
+    Connection acquire() throws SQLException;
+
+    /**
+     * Releases a connection acquired from this connector.
+     *
+     * @param connection Released connection.
+     * @throws SQLException When connection can not be released.
+     */
+    void release(Connection connection) throws SQLException;
+
+    /**
+     * Prepares a statement on a connection acquired from this connector.
+     *
+     * @param connection Connection on which the statement is prepared.
+     * @param sql        SQL query.
+     * @return Prepared statement.
+     * @throws SQLException When statement can not be prepared.
+     */
+    PreparedStatement prepare(Connection connection, String sql) throws SQLException;
+
+    /**
+     * Releases a statement prepared by this connector.
+     *
+     * @param sql       SQL query of the statement.
+     * @param statement Released statement.
+     * @throws SQLException When statement can not be released.
+     */
+    void release(String sql, PreparedStatement statement) throws SQLException;
+
+    /**
+     * Acquires a connection and prepares a statement on it.
+     *
+     * @param sql SQL query.
+     * @return Lease of connection and statement that releases both when closed.
+     * @throws SQLException When connection can not be obtained or statement can not be prepared.
+     */
+    default Lease lease(String sql) throws SQLException {
+        var connection = acquire();
+        try {
+            return new Lease(this, connection, sql, prepare(connection, sql));
+        } catch (SQLException | RuntimeException e) {
+            try {
+                release(connection);
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Acquires a connection and prepares a statement on it for a streamed query, whose lease lasts for as long as the
+     * stream is consumed rather than for a single round trip.
+     *
+     * @param sql SQL query.
+     * @return Lease of connection and statement that releases both when closed.
+     * @throws SQLException When connection can not be obtained or statement can not be prepared.
+     */
+    default Lease leaseStream(String sql) throws SQLException {
+        return lease(sql);
+    }
+
+    /**
+     * Connection and statement acquired from a connector.
+     */
+    final class Lease implements AutoCloseable {
+
+        /**
+         * Connector that provided the connection and statement.
+         */
+        private final Connector connector;
+
+        /**
+         * Acquired connection.
+         */
+        private final Connection connection;
+
+        /**
+         * SQL query of the statement.
+         */
+        private final String sql;
+
+        /**
+         * Prepared statement.
+         */
+        private final PreparedStatement statement;
+
+        /**
+         * Creates instance of Lease.
+         *
+         * @param connector  Connector that provided the connection and statement.
+         * @param connection Acquired connection.
+         * @param sql        SQL query of the statement.
+         * @param statement  Prepared statement.
+         */
+        Lease(Connector connector, Connection connection, String sql, PreparedStatement statement) {
+            this.connector = connector;
+            this.connection = connection;
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        /**
+         * @return Leased prepared statement.
+         */
+        PreparedStatement statement() {
+            return statement;
+        }
+
+        /**
+         * @return Leased connection.
+         */
+        Connection connection() {
+            return connection;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                connector.release(sql, statement);
+            } finally {
+                connector.release(connection);
+            }
+        }
+    }
+}
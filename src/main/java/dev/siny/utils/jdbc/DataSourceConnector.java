@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Connector that obtains a new connection from data source for every operation and closes everything it provides.
+ *
+ * @author Dariusz Szwarc
+ */
+final class DataSourceConnector implements Connector {
+
+    /**
+     * Data source that will be used to obtain connections.
+     */
+    private final DataSource dataSource;
+
+    /**
+     * Creates instance of DataSourceConnector.
+     *
+     * @param dataSource Data source that will be used to obtain connections. Must not be null.
+     */
+    DataSourceConnector(DataSource dataSource) {
+        this.dataSource = requireNonNull(dataSource, "data source");
+    }
+
+    /**
+     * @return Data source that is used to obtain connections.
+     */
+    DataSource dataSource() {
+        return dataSource;
+    }
+
+    @Override
+    public Connection acquire() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    @Override
+    public void release(Connection connection) throws SQLException {
+        connection.close();
+    }
+
+    @Override
+    public PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        return connection.prepareStatement(sql);
+    }
+
+    @Override
+    public void release(String sql, PreparedStatement statement) throws SQLException {
+        statement.close();
+    }
+}
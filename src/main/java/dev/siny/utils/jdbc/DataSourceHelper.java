@@ -26,10 +26,31 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.BatchUpdateException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.util.Objects.requireNonNull;
 
@@ -46,17 +67,81 @@ public final class DataSourceHelper implements Operations {
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     /**
-     * Data source that will be used to obtain connections.
+     * Number of prepared statements cached by a session when it is not specified.
      */
-    private final DataSource dataSource;
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    /**
+     * Counter of rows in result of {@link #fetchOne}.
+     */
+    private static final ToIntFunction<Optional<?>> ONE_ROW = result -> result.isPresent() ? 1 : 0;
+
+    /**
+     * Counter of rows in result of {@link #fetchMany}.
+     */
+    private static final ToIntFunction<List<?>> MANY_ROWS = List::size;
+
+    /**
+     * Counter of rows in result of any extractor. Results other than collections, optionals, columnar results and
+     * export summaries are reported as -1.
+     */
+    private static final ToIntFunction<Object> RESULT_ROWS = DataSourceHelper::rows;
+
+    /**
+     * Connector that will be used to obtain connections and statements.
+     */
+    private final Connector connector;
+
+    /**
+     * Listener notified about executed queries. May be null.
+     */
+    private final QueryListener listener;
+
+    /**
+     * Tuner of fetch size of queries.
+     */
+    private final FetchSizeTuner tuner;
+
+    /**
+     * Whether operations without a handler throw {@link UncheckedSQLException} instead of returning a default result.
+     */
+    private final boolean throwing;
+
+    /**
+     * Creates instance of DataSourceHelper.
+     *
+     * @param connector Connector that will be used to obtain connections and statements. Must not be null.
+     * @param listener  Listener notified about executed queries. May be null.
+     */
+    DataSourceHelper(Connector connector, QueryListener listener) {
+        this(connector, listener, new FetchSizeTuner());
+    }
+
+    /**
+     * Creates instance of DataSourceHelper.
+     *
+     * @param connector Connector that will be used to obtain connections and statements. Must not be null.
+     * @param listener  Listener notified about executed queries. May be null.
+     * @param tuner     Tuner of fetch size of queries. Must not be null.
+     */
+    DataSourceHelper(Connector connector, QueryListener listener, FetchSizeTuner tuner) {
+        this(connector, listener, tuner, false);
+    }
 
     /**
      * Creates instance of DataSourceHelper.
      *
-     * @param dataSource Data source that will be used to obtain connections. Must not be null.
+     * @param connector Connector that will be used to obtain connections and statements. Must not be null.
+     * @param listener  Listener notified about executed queries. May be null.
+     * @param tuner     Tuner of fetch size of queries. Must not be null.
+     * @param throwing  Whether operations without a handler throw {@link UncheckedSQLException} instead of returning
+     *                  a default result.
      */
-    private DataSourceHelper(DataSource dataSource) {
-        this.dataSource = requireNonNull(dataSource, "data source");
+    DataSourceHelper(Connector connector, QueryListener listener, FetchSizeTuner tuner, boolean throwing) {
+        this.connector = requireNonNull(connector, "connector");
+        this.listener = listener;
+        this.tuner = requireNonNull(tuner, "tuner");
+        this.throwing = throwing;
     }
 
     /**
@@ -65,86 +150,622 @@ public final class DataSourceHelper implements Operations {
      * @return New DataSourceHelper object.
      */
     public static DataSourceHelper create(DataSource dataSource) {
-        return new DataSourceHelper(dataSource);
+        return new DataSourceHelper(new DataSourceConnector(dataSource), null);
+    }
+
+    /**
+     * Creates a DataSourceHelper that notifies listener about every executed query.
+     *
+     * @param dataSource Data source that will be wrapped by the DataSourceHelper.
+     * @param listener   Listener notified about executed queries, e.g. {@link QueryMetrics}. Must not be null.
+     * @return New DataSourceHelper object.
+     * @see #builder(DataSource)
+     */
+    public static DataSourceHelper create(DataSource dataSource, QueryListener listener) {
+        return builder(dataSource).listener(listener).build();
+    }
+
+    /**
+     * Creates a DataSourceHelper that limits number of concurrently executed queries. Queries exceeding the limit
+     * are rejected with {@link java.sql.SQLTransientConnectionException} passed to the handler of the operation.
+     *
+     * @param dataSource Data source that will be wrapped by the DataSourceHelper.
+     * @param limiter    Limiter adapting number of concurrent queries to observed round-trip times. Must not be
+     *                   null.
+     * @return New DataSourceHelper object.
+     * @see #builder(DataSource)
+     */
+    public static DataSourceHelper create(DataSource dataSource, ConcurrencyLimiter limiter) {
+        return builder(dataSource).limiter(limiter).build();
+    }
+
+    /**
+     * Creates a DataSourceHelper that limits number of concurrently executed queries and notifies listener about
+     * every executed query.
+     *
+     * @param dataSource Data source that will be wrapped by the DataSourceHelper.
+     * @param listener   Listener notified about executed queries. Must not be null.
+     * @param limiter    Limiter adapting number of concurrent queries to observed round-trip times. Must not be
+     *                   null.
+     * @return New DataSourceHelper object.
+     * @see #builder(DataSource)
+     */
+    public static DataSourceHelper create(DataSource dataSource, QueryListener listener, ConcurrencyLimiter limiter) {
+        return builder(dataSource).listener(listener).limiter(limiter).build();
+    }
+
+    /**
+     * Starts building a DataSourceHelper with a listener, a concurrency limiter or other options.
+     *
+     * @param dataSource Data source that will be wrapped by the DataSourceHelper. Must not be null.
+     * @return New Builder object.
+     */
+    public static Builder builder(DataSource dataSource) {
+        return new Builder(new DataSourceConnector(requireNonNull(dataSource, "dataSource")));
+    }
+
+    /**
+     * Creates a DataSourceHelper that obtains connections from a built-in pool, e.g. for a data source that opens a
+     * new physical connection every time.
+     *
+     * @param pool Pool of connections of the data source. Must not be null.
+     * @return New DataSourceHelper object.
+     * @see #builder(ConnectionPool)
+     */
+    public static DataSourceHelper create(ConnectionPool pool) {
+        return builder(pool).build();
+    }
+
+    /**
+     * Starts building a DataSourceHelper that obtains connections from a built-in pool, e.g. for a data source that
+     * opens a new physical connection every time.
+     *
+     * @param pool Pool of connections of the data source. Must not be null.
+     * @return New Builder object.
+     */
+    public static Builder builder(ConnectionPool pool) {
+        return new Builder(requireNonNull(pool, "pool").connector());
+    }
+
+    /**
+     * @return Tuner of fetch size of queries, shared with sessions, for configuration and inspection of learned
+     * profiles.
+     */
+    public FetchSizeTuner fetchSizeTuner() {
+        return tuner;
+    }
+
+    /**
+     * Performs work in a session bound to a single connection. The session caches prepared statements.
+     *
+     * @param work Work performed using the session.
+     * @param <R>  Type of produced object.
+     * @return Result of the work.
+     * @throws UncheckedSQLException When connection can not be obtained or released.
+     */
+    public <R> R inSession(Function<Session, R> work) {
+        return inSession(work, false, DEFAULT_STATEMENT_CACHE_SIZE, Handler.throwing(UncheckedSQLException::new));
+    }
+
+    /**
+     * Performs work in a transactional session bound to a single connection. The transaction is committed when the
+     * work completes and rolled back when it throws an exception. Operations of the session that do not accept a
+     * handler throw {@link UncheckedSQLException} when a statement fails, so a failed statement rolls back the
+     * transaction unless the work catches it.
+     *
+     * @param work Work performed using the session.
+     * @param <R>  Type of produced object.
+     * @return Result of the work.
+     * @throws UncheckedSQLException When connection can not be obtained or transaction can not be committed.
+     */
+    public <R> R inTransaction(Function<Session, R> work) {
+        return inSession(work, true, DEFAULT_STATEMENT_CACHE_SIZE, Handler.throwing(UncheckedSQLException::new));
+    }
+
+    /**
+     * Performs work in a session bound to a single connection.
+     *
+     * @param work               Work performed using the session.
+     * @param transactional      Whether the work is performed in a single transaction. The transaction is committed
+     *                           when the work completes and rolled back when it throws an exception. Operations of
+     *                           a transactional session that do not accept a handler throw
+     *                           {@link UncheckedSQLException} instead of returning a default result.
+     * @param statementCacheSize Maximum number of prepared statements cached by the session. Zero disables caching.
+     * @param handler            Handler of exceptions raised when obtaining the connection, committing or releasing
+     *                           the session.
+     * @param <R>                Type of produced object.
+     * @return Result of the work.
+     */
+    public <R> R inSession(Function<Session, R> work, boolean transactional, int statementCacheSize,
+                           Handler<R> handler) {
+        requireNonNull(work, "work");
+        try {
+            var session = new Session(connector, listener, tuner, transactional, statementCacheSize);
+            R result;
+            try {
+                result = work.apply(session);
+                session.complete();
+            } catch (Throwable t) {
+                try {
+                    session.close();
+                } catch (SQLException | RuntimeException e) {
+                    t.addSuppressed(e);
+                }
+                throw t;
+            }
+            session.close();
+            return result;
+        } catch (SQLException e) {
+            log(e);
+            return handler.handle(e);
+        }
     }
 
     @Override
     public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper) {
         Handler<Optional<T>> handler = Handler.returning(e -> Optional.empty());
-        return fetch(sql, Setter.noParameters(), Extractor.extractOne(mapper, handler), handler);
+        return fetch(sql, Setter.noParameters(), Extractor.extractOne(mapper, handler),
+                fallback(e -> Optional.empty()), ONE_ROW);
     }
 
     @Override
     public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper, Object parameter) {
+        if (parameter instanceof Collection) {
+            return fetchOne(sql, mapper, new Object[]{parameter});
+        }
         Handler<Optional<T>> handler = Handler.returning(e -> Optional.empty());
-        return fetch(sql, Setter.forParameter(parameter), Extractor.extractOne(mapper, handler), handler);
+        return fetch(sql, Setter.forParameter(parameter), Extractor.extractOne(mapper, handler),
+                fallback(e -> Optional.empty()), ONE_ROW);
     }
 
     @Override
     public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper, Object... parameters) {
+        if (InListExpansion.containsCollection(parameters)) {
+            var expanded = InListExpansion.expand(sql, parameters);
+            return fetchOne(expanded.sql(), mapper, expanded.parameters());
+        }
         Handler<Optional<T>> handler = Handler.returning(e -> Optional.empty());
-        return fetch(sql, Setter.forParameters(parameters), Extractor.extractOne(mapper, handler), handler);
+        return fetch(sql, Setter.forParameters(parameters), Extractor.extractOne(mapper, handler),
+                fallback(e -> Optional.empty()), ONE_ROW);
     }
 
     @Override
     public <T> List<T> fetchMany(String sql, RowMapper<T> mapper) {
         Handler<List<T>> handler = Handler.returning(e -> Collections.emptyList());
-        return fetch(sql, Setter.noParameters(), Extractor.extractMany(mapper, handler), handler);
+        return fetch(sql, Setter.noParameters(), Extractor.extractMany(mapper, handler),
+                fallback(e -> Collections.emptyList()), MANY_ROWS);
     }
 
     @Override
     public <T> List<T> fetchMany(String sql, RowMapper<T> mapper, Object parameter) {
+        if (parameter instanceof Collection) {
+            return fetchMany(sql, mapper, new Object[]{parameter});
+        }
         Handler<List<T>> handler = Handler.returning(e -> Collections.emptyList());
-        return fetch(sql, Setter.forParameter(parameter), Extractor.extractMany(mapper, handler), handler);
+        return fetch(sql, Setter.forParameter(parameter), Extractor.extractMany(mapper, handler),
+                fallback(e -> Collections.emptyList()), MANY_ROWS);
     }
 
     @Override
     public <T> List<T> fetchMany(String sql, RowMapper<T> mapper, Object... parameters) {
+        if (InListExpansion.containsCollection(parameters)) {
+            var expanded = InListExpansion.expand(sql, parameters);
+            return fetchMany(expanded.sql(), mapper, expanded.parameters());
+        }
         Handler<List<T>> handler = Handler.returning(e -> Collections.emptyList());
-        return fetch(sql, Setter.forParameters(parameters), Extractor.extractMany(mapper, handler), handler);
+        return fetch(sql, Setter.forParameters(parameters), Extractor.extractMany(mapper, handler),
+                fallback(e -> Collections.emptyList()), MANY_ROWS);
+    }
+
+    @Override
+    public <T> Stream<T> fetchStream(String sql, RowMapper<T> mapper, Object... parameters) {
+        if (InListExpansion.containsCollection(parameters)) {
+            var expanded = InListExpansion.expand(sql, parameters);
+            return fetchStream(expanded.sql(), mapper, expanded.parameters());
+        }
+        int tuned = tuner.fetchSize(sql);
+        int fetchSize = tuned > 0 ? tuned : DEFAULT_FETCH_SIZE;
+        return fetchStream(sql, Setter.forParameters(parameters), mapper, fetchSize, fallback(e -> Stream.empty()));
+    }
+
+    @Override
+    public <T> Stream<T> fetchStream(String sql, Setter setter, RowMapper<T> mapper, int fetchSize,
+                                     Handler<Stream<T>> handler) {
+        log.debug("Executing streamed query:\n {}", sql);
+        var listener = this.listener;
+        long start = now(listener);
+        Connector.Lease lease = null;
+        try {
+            lease = connector.leaseStream(sql);
+            var statement = lease.statement();
+            long acquired = now(listener);
+            statement.setFetchSize(fetchSize);
+            setter.setup(statement);
+            var resultSet = statement.executeQuery();
+            long executed = now(listener);
+            LongConsumer onClose = rows -> {
+                profile(sql, rows, resultSet);
+                if (listener != null) {
+                    listener.onQuery(sql, acquired - start, executed - acquired, System.nanoTime() - executed, rows);
+                }
+            };
+            var spliterator = new ResultSetSpliterator<>(lease, resultSet, mapper, onClose);
+            return StreamSupport.stream(spliterator, false).onClose(spliterator::close);
+        } catch (SQLException e) {
+            log(e);
+            notifyError(listener, sql, e);
+            closeQuietly(lease);
+            return handler.handle(e);
+        }
     }
 
     @Override
     public <T> T fetch(String sql, Setter setter, Extractor<T> extractor, Handler<T> handler) {
+        return fetch(sql, setter, extractor, handler, RESULT_ROWS);
+    }
+
+    /**
+     * Fetches an object.
+     *
+     * @param sql       SQL query.
+     * @param setter    Setter of parameters for parameterized SQL query.
+     * @param extractor Extractor of result set.
+     * @param handler   Handler of exceptions raised during execution of query and processing of result.
+     * @param rows      Counter of rows in extracted object, reported to the listener.
+     * @param <T>       Type of produced object.
+     * @return Object mapped from result set obtained by executing the SQL query.
+     */
+    private <T> T fetch(String sql, Setter setter, Extractor<T> extractor, Handler<T> handler,
+                        ToIntFunction<? super T> rows) {
         log.debug("Executing query:\n {}", sql);
-        try (var connection = dataSource.getConnection(); var statement = connection.prepareStatement(sql)) {
+        var listener = this.listener;
+        long start = now(listener);
+        try (var lease = connector.lease(sql)) {
+            var statement = lease.statement();
+            long acquired = now(listener);
+            int fetchSize = tuner.fetchSize(sql);
+            if (fetchSize > 0) {
+                statement.setFetchSize(fetchSize);
+            }
             setter.setup(statement);
             try (var resultSet = statement.executeQuery()) {
-                return extractor.process(resultSet);
+                long executed = now(listener);
+                var result = extractor.process(resultSet);
+                int count = rows.applyAsInt(result);
+                profile(sql, count, resultSet);
+                if (listener != null) {
+                    listener.onQuery(sql, acquired - start, executed - acquired, System.nanoTime() - executed, count);
+                }
+                return result;
             }
         } catch (SQLException e) {
             log(e);
+            notifyError(listener, sql, e);
             return handler.handle(e);
         }
     }
 
+    /**
+     * Exports results of a query to a channel.
+     *
+     * @param sql        Parameterized SQL query.
+     * @param channel    Channel receiving exported rows. It is not closed.
+     * @param format     Format of exported rows.
+     * @param parameters Parameters that are passed to the parameterized query.
+     * @return Summary of the export, including throughput.
+     * @throws UncheckedSQLException When the query fails or the channel raises an exception.
+     */
+    public ExportSummary exportTo(String sql, WritableByteChannel channel, ExportFormat format, Object... parameters) {
+        if (InListExpansion.containsCollection(parameters)) {
+            var expanded = InListExpansion.expand(sql, parameters);
+            return exportTo(expanded.sql(), channel, format, expanded.parameters());
+        }
+        var summary = fetch(sql, Setter.forParameters(parameters), Extractor.exportTo(channel, format),
+                Handler.throwing(UncheckedSQLException::new),
+                result -> (int) Math.min(result.rows(), Integer.MAX_VALUE));
+        log.debug("Exported {}", summary);
+        return summary;
+    }
+
+    /**
+     * Exports results of a query to a file, replacing its contents. Rows are written to a temporary file in the same
+     * directory, which replaces the file only when the export succeeds, so a failed export leaves the file intact.
+     *
+     * @param sql        Parameterized SQL query.
+     * @param file       File receiving exported rows.
+     * @param format     Format of exported rows.
+     * @param parameters Parameters that are passed to the parameterized query.
+     * @return Summary of the export, including throughput.
+     * @throws UncheckedSQLException        When the query fails or the file can not be written.
+     * @throws java.io.UncheckedIOException When the file can not be opened or closed.
+     */
+    public ExportSummary exportTo(String sql, Path file, ExportFormat format, Object... parameters) {
+        var target = file.toAbsolutePath();
+        Path temporary;
+        try {
+            temporary = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        boolean replaced = false;
+        try {
+            ExportSummary summary;
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                summary = exportTo(sql, channel, format, parameters);
+            }
+            replace(temporary, target);
+            replaced = true;
+            return summary;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (!replaced) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException e) {
+                    log.warn("Could not delete {}: {}", temporary, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces a file by another one, atomically if the file system supports it.
+     *
+     * @param source Replacing file.
+     * @param target Replaced file.
+     * @throws IOException When the file can not be replaced.
+     */
+    private static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
     @Override
     public int update(String sql) {
-        return update(sql, Setter.noParameters(), Handler.returning(e -> 0));
+        return update(sql, Setter.noParameters(), fallback(e -> 0));
     }
 
     @Override
     public int update(String sql, Object parameter) {
-        return update(sql, Setter.forParameter(parameter), Handler.returning(e -> 0));
+        if (parameter instanceof Collection) {
+            return update(sql, new Object[]{parameter});
+        }
+        return update(sql, Setter.forParameter(parameter), fallback(e -> 0));
     }
 
     @Override
     public int update(String sql, Object... parameters) {
-        return update(sql, Setter.forParameters(parameters), Handler.returning(e -> 0));
+        if (InListExpansion.containsCollection(parameters)) {
+            var expanded = InListExpansion.expand(sql, parameters);
+            return update(expanded.sql(), expanded.parameters());
+        }
+        return update(sql, Setter.forParameters(parameters), fallback(e -> 0));
     }
 
     @Override
     public int update(String sql, Setter setter, Handler<Integer> handler) {
         log.debug("Executing update:\n {}", sql);
-        try (var connection = dataSource.getConnection(); var statement = connection.prepareStatement(sql)) {
+        var listener = this.listener;
+        long start = now(listener);
+        try (var lease = connector.lease(sql)) {
+            var statement = lease.statement();
+            long acquired = now(listener);
             setter.setup(statement);
-            return statement.executeUpdate();
+            int count = statement.executeUpdate();
+            if (listener != null) {
+                listener.onQuery(sql, acquired - start, System.nanoTime() - acquired, 0, count);
+            }
+            return count;
         } catch (SQLException e) {
             log(e);
+            notifyError(listener, sql, e);
             return handler.handle(e);
         }
     }
 
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> parameters, int batchSize) {
+        return updateBatch(sql, parameters, Binder.forParameters(), batchSize, fallback(e -> 0));
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Iterable<T> items, Binder<T> binder, int batchSize,
+                                 Handler<Integer> handler) {
+        return updateBatch(sql, items.iterator(), binder, batchSize, handler);
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Stream<T> items, Binder<T> binder, int batchSize,
+                                 Handler<Integer> handler) {
+        try (items) {
+            return updateBatch(sql, items.iterator(), binder, batchSize, handler);
+        }
+    }
+
+    /**
+     * Executes an update for every item, sending them to the database in batches.
+     *
+     * @param sql       Parameterized SQL query.
+     * @param items     Iterator of items bound to consecutive executions of the parameterized query.
+     * @param binder    Binder of item to parameters of the query.
+     * @param batchSize Maximum number of executions sent to the database in a single batch.
+     * @param handler   Handler of exceptions raised during execution of a batch.
+     * @param <T>       Type of bound item.
+     * @return Number of affected rows for every executed batch.
+     */
+    private <T> int[] updateBatch(String sql, Iterator<T> items, Binder<T> binder, int batchSize,
+                                  Handler<Integer> handler) {
+        requireNonNull(binder, "binder");
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        log.debug("Executing batch update:\n {}", sql);
+        var listener = this.listener;
+        long start = now(listener);
+        int[] counts = new int[16];
+        int batches = 0;
+        try (var lease = connector.lease(sql)) {
+            long acquired = now(listener);
+            long total = 0;
+            while (items.hasNext()) {
+                if (batches == counts.length) {
+                    counts = Arrays.copyOf(counts, batches * 2);
+                }
+                counts[batches] = executeBatch(sql, lease.statement(), items, binder, batchSize, handler);
+                total += counts[batches++];
+            }
+            if (listener != null) {
+                listener.onQuery(sql, acquired - start, System.nanoTime() - acquired, 0, total);
+            }
+        } catch (SQLException e) {
+            log(e);
+            notifyError(listener, sql, e);
+            counts = Arrays.copyOf(counts, batches + 1);
+            counts[batches++] = handler.handle(e);
+        }
+        return Arrays.copyOf(counts, batches);
+    }
+
+    /**
+     * Binds up to batchSize items to the statement and executes them as a single batch.
+     *
+     * @param sql       SQL query of the statement.
+     * @param statement Prepared statement that executes the batch.
+     * @param items     Iterator of items, positioned at first item of the batch.
+     * @param binder    Binder of item to parameters of the query.
+     * @param batchSize Maximum number of items in the batch.
+     * @param handler   Handler of exceptions raised during execution of the batch.
+     * @param <T>       Type of bound item.
+     * @return Number of rows affected by the batch. When the batch fails, rows affected by the statements reported
+     * in {@link BatchUpdateException#getUpdateCounts()} are added to the result of the handler.
+     * @throws SQLException When prepared statement raises an exception when setting the parameters.
+     */
+    private <T> int executeBatch(String sql, PreparedStatement statement, Iterator<T> items, Binder<T> binder,
+                                 int batchSize, Handler<Integer> handler) throws SQLException {
+        for (int i = 0; i < batchSize && items.hasNext(); i++) {
+            binder.bind(statement, items.next());
+            statement.addBatch();
+        }
+        try {
+            return sum(statement.executeBatch());
+        } catch (BatchUpdateException e) {
+            log(e);
+            notifyError(listener, sql, e);
+            statement.clearBatch();
+            int[] applied = e.getUpdateCounts();
+            return (applied == null ? 0 : sum(applied)) + handler.handle(e);
+        }
+    }
+
+    /**
+     * Creates handler of operations that do not accept a handler.
+     *
+     * @param result Function providing default result of failed operation.
+     * @param <T>    Type of produced object.
+     * @return Handler returning the default result or, when this DataSourceHelper is throwing, throwing
+     * {@link UncheckedSQLException}.
+     */
+    private <T> Handler<T> fallback(Function<SQLException, T> result) {
+        return throwing ? Handler.throwing(UncheckedSQLException::new) : Handler.returning(result);
+    }
+
+    /**
+     * Sums update counts returned by batch execution, skipping counts that are not known.
+     *
+     * @param counts Update counts of batch.
+     * @return Number of affected rows.
+     */
+    private static int sum(int[] counts) {
+        int sum = 0;
+        for (int count : counts) {
+            if (count != Statement.SUCCESS_NO_INFO && count != Statement.EXECUTE_FAILED) {
+                sum += count;
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Counts rows in result of an extractor.
+     *
+     * @param result Extracted object.
+     * @return Number of rows in the result or -1 if it is not known.
+     */
+    private static int rows(Object result) {
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Optional) {
+            return ((Optional<?>) result).isPresent() ? 1 : 0;
+        }
+        if (result instanceof ColumnarResult) {
+            return ((ColumnarResult) result).rowCount();
+        }
+        if (result instanceof ExportSummary) {
+            return (int) Math.min(((ExportSummary) result).rows(), Integer.MAX_VALUE);
+        }
+        return -1;
+    }
+
+    /**
+     * Reads current time if a listener will be notified.
+     *
+     * @param listener Listener notified about executed queries. May be null.
+     * @return Current value of {@link System#nanoTime()} or zero if there is no listener.
+     */
+    private static long now(QueryListener listener) {
+        return listener == null ? 0 : System.nanoTime();
+    }
+
+    /**
+     * Notifies listener, if present, about failed query.
+     *
+     * @param listener Listener notified about executed queries. May be null.
+     * @param sql      SQL query that failed.
+     * @param e        Raised exception.
+     */
+    private static void notifyError(QueryListener listener, String sql, SQLException e) {
+        if (listener != null) {
+            listener.onError(sql, e);
+        }
+    }
+
+    /**
+     * Records an execution of a query in the fetch size tuner, logging exception raised by the result set, so that
+     * profiling never fails the query.
+     *
+     * @param sql       SQL query.
+     * @param rows      Number of rows returned by the query, negative if unknown.
+     * @param resultSet Result set of the query.
+     */
+    private void profile(String sql, long rows, ResultSet resultSet) {
+        try {
+            tuner.record(sql, rows, resultSet);
+        } catch (SQLException e) {
+            log(e);
+        }
+    }
+
+    /**
+     * Closes a resource, logging exception raised during closing.
+     *
+     * @param resource Resource to be closed. May be null.
+     */
+    private void closeQuietly(AutoCloseable resource) {
+        if (resource == null) {
+            return;
+        }
+        try {
+            resource.close();
+        } catch (Exception e) {
+            log.debug("Error closing resource:", e);
+        }
+    }
+
     /**
      * Allows to log SQL Exceptions using default logger.
      * @param e Exception that will be logged.
@@ -153,4 +774,64 @@ public final class DataSourceHelper implements Operations {
         log.error("Error executing: {}", e.getMessage());
         log.debug("Details:", e);
     }
+
+    /**
+     * Builder of {@link DataSourceHelper}.
+     */
+    public static final class Builder {
+
+        /**
+         * Connector that provides connections and statements.
+         */
+        private final Connector connector;
+
+        /**
+         * Listener notified about executed queries, may be null.
+         */
+        private QueryListener listener;
+
+        /**
+         * Limiter of concurrently executed queries, may be null.
+         */
+        private ConcurrencyLimiter limiter;
+
+        /**
+         * Creates instance of Builder.
+         *
+         * @param connector Connector that provides connections and statements.
+         */
+        private Builder(Connector connector) {
+            this.connector = connector;
+        }
+
+        /**
+         * @param listener Listener notified about every executed query, e.g. {@link QueryMetrics}. Must not be null.
+         * @return This object.
+         */
+        public Builder listener(QueryListener listener) {
+            this.listener = requireNonNull(listener, "listener");
+            return this;
+        }
+
+        /**
+         * Limits number of concurrently executed queries. Queries exceeding the limit are rejected with
+         * {@link java.sql.SQLTransientConnectionException} passed to the handler of the operation.
+         *
+         * @param limiter Limiter adapting number of concurrent queries to observed round-trip times. Must not be
+         *                null.
+         * @return This object.
+         */
+        public Builder limiter(ConcurrencyLimiter limiter) {
+            this.limiter = requireNonNull(limiter, "limiter");
+            return this;
+        }
+
+        /**
+         * @return New DataSourceHelper object.
+         */
+        public DataSourceHelper build() {
+            var connector = limiter == null ? this.connector : new LimitingConnector(this.connector, limiter);
+            return new DataSourceHelper(connector, listener);
+        }
+    }
 }
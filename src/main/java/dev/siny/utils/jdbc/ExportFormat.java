@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+/**
+ * Format of query results exported by {@link Extractor#exportTo}.
+ *
+ * @author Dariusz Szwarc
+ */
+public enum ExportFormat {
+
+    /**
+     * Comma separated values as specified by RFC 4180, with a header of column labels, UTF-8 encoding and CRLF line
+     * breaks. Nulls are exported as empty fields and binary values as hexadecimal digits.
+     */
+    CSV,
+
+    /**
+     * Compact binary format. Header contains number of columns as a 4-byte big-endian integer followed by
+     * length-prefixed UTF-8 labels of columns. Every value starts with a tag: {@code 0} for null, {@code 1} for a
+     * zig-zag encoded variable-length integer, {@code 2} for an 8-byte IEEE 754 floating point number, {@code 3} for
+     * a length-prefixed UTF-8 string, {@code 4} for length-prefixed bytes, {@code 5} for false and {@code 6} for
+     * true. Lengths are unsigned variable-length integers with 7 bits per byte, least significant group first.
+     * Integers are encoded the same way after zig-zag mapping of signed to unsigned values.
+     */
+    BINARY
+}
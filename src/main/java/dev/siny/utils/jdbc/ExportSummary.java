@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+/**
+ * Summary of exported query results.
+ *
+ * @author Dariusz Szwarc
+ */
+public final class ExportSummary {
+
+    /**
+     * Number of exported rows.
+     */
+    private final long rows;
+
+    /**
+     * Number of written bytes.
+     */
+    private final long bytes;
+
+    /**
+     * Duration of the export, in nanoseconds.
+     */
+    private final long nanos;
+
+    /**
+     * Creates instance of ExportSummary.
+     *
+     * @param rows  Number of exported rows.
+     * @param bytes Number of written bytes.
+     * @param nanos Duration of the export, in nanoseconds.
+     */
+    ExportSummary(long rows, long bytes, long nanos) {
+        this.rows = rows;
+        this.bytes = bytes;
+        this.nanos = nanos;
+    }
+
+    /**
+     * @return Number of exported rows.
+     */
+    public long rows() {
+        return rows;
+    }
+
+    /**
+     * @return Number of written bytes.
+     */
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return Duration of reading and writing rows, in nanoseconds.
+     */
+    public long nanos() {
+        return nanos;
+    }
+
+    /**
+     * @return Exported rows per second.
+     */
+    public double rowsPerSecond() {
+        return nanos == 0 ? 0 : rows * 1e9 / nanos;
+    }
+
+    /**
+     * @return Written bytes per second.
+     */
+    public double bytesPerSecond() {
+        return nanos == 0 ? 0 : bytes * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows, %d bytes in %.3f ms (%.0f rows/s, %.0f bytes/s)", rows, bytes, nanos / 1e6,
+                rowsPerSecond(), bytesPerSecond());
+    }
+}
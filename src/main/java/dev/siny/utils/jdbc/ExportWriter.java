@@ -0,0 +1,602 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Writer of exported rows into a channel through a direct buffer. Values are encoded directly into the buffer,
+ * without intermediate strings or byte arrays. The buffer is allocated once per thread and reused by its exports.
+ *
+ * @author Dariusz Szwarc
+ */
+final class ExportWriter {
+
+    /**
+     * Size of the buffer.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Tag of null value in binary format.
+     */
+    private static final byte NULL = 0;
+
+    /**
+     * Tag of integer value in binary format.
+     */
+    private static final byte LONG = 1;
+
+    /**
+     * Tag of floating point value in binary format.
+     */
+    private static final byte DOUBLE = 2;
+
+    /**
+     * Tag of string value in binary format.
+     */
+    private static final byte STRING = 3;
+
+    /**
+     * Tag of binary value in binary format.
+     */
+    private static final byte BYTES = 4;
+
+    /**
+     * Tag of false boolean value in binary format.
+     */
+    private static final byte FALSE = 5;
+
+    /**
+     * Tag of true boolean value in binary format.
+     */
+    private static final byte TRUE = 6;
+
+    /**
+     * Hexadecimal digits.
+     */
+    private static final byte[] HEX = {'0', '1', '2', '3', '4', '5', '6', '7', '8', '9', 'a', 'b', 'c', 'd', 'e', 'f'};
+
+    /**
+     * Direct buffers reused by exports of a thread.
+     */
+    private static final ThreadLocal<ByteBuffer> buffers =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    /**
+     * Channel receiving exported bytes.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * Buffer of bytes not yet written to the channel.
+     */
+    private final ByteBuffer buffer = buffers.get().clear();
+
+    /**
+     * Digits of a decimal number, in reverse order.
+     */
+    private final byte[] digits = new byte[20];
+
+    /**
+     * Number of bytes written to the channel.
+     */
+    private long written;
+
+    /**
+     * Creates instance of ExportWriter.
+     *
+     * @param channel Channel receiving exported bytes.
+     */
+    ExportWriter(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Exports all rows of result set.
+     *
+     * @param resultSet Exported result set.
+     * @param format    Format of exported rows.
+     * @param channel   Channel receiving exported bytes. It is not closed.
+     * @return Summary of the export.
+     * @throws SQLException when result set or the channel raises an exception.
+     */
+    static ExportSummary export(ResultSet resultSet, ExportFormat format, WritableByteChannel channel)
+            throws SQLException {
+        long start = System.nanoTime();
+        var writer = new ExportWriter(channel);
+        try {
+            var metaData = resultSet.getMetaData();
+            var kinds = kinds(metaData);
+            boolean csv = format == ExportFormat.CSV;
+            if (csv) {
+                writer.csvHeader(metaData);
+            } else {
+                writer.binaryHeader(metaData);
+            }
+            long rows = 0;
+            while (resultSet.next()) {
+                if (csv) {
+                    writer.csvRow(resultSet, kinds);
+                } else {
+                    writer.binaryRow(resultSet, kinds);
+                }
+                rows++;
+            }
+            writer.flush();
+            return new ExportSummary(rows, writer.written, System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new SQLException("Could not write exported rows: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Determines how columns are read and encoded.
+     *
+     * @param metaData Metadata of exported result set.
+     * @return Kinds of columns.
+     * @throws SQLException when result set raises an exception.
+     */
+    private static Kind[] kinds(ResultSetMetaData metaData) throws SQLException {
+        var kinds = new Kind[metaData.getColumnCount()];
+        for (int i = 0; i < kinds.length; i++) {
+            kinds[i] = switch (metaData.getColumnType(i + 1)) {
+                case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT -> Kind.INTEGER;
+                case Types.DOUBLE, Types.FLOAT, Types.REAL -> Kind.FLOATING;
+                case Types.BOOLEAN, Types.BIT -> Kind.BOOLEAN;
+                case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB -> Kind.BINARY;
+                default -> Kind.TEXT;
+            };
+        }
+        return kinds;
+    }
+
+    /**
+     * Writes CSV header of column labels.
+     *
+     * @param metaData Metadata of exported result set.
+     * @throws SQLException when result set raises an exception.
+     * @throws IOException  when the channel raises an exception.
+     */
+    private void csvHeader(ResultSetMetaData metaData) throws SQLException, IOException {
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            if (i > 1) {
+                put((byte) ',');
+            }
+            putCsv(metaData.getColumnLabel(i));
+        }
+        put((byte) '\r').put((byte) '\n');
+    }
+
+    /**
+     * Writes current row of result set as CSV record.
+     *
+     * @param resultSet Result set positioned at exported row.
+     * @param kinds     Kinds of columns.
+     * @throws SQLException when result set raises an exception.
+     * @throws IOException  when the channel raises an exception.
+     */
+    private void csvRow(ResultSet resultSet, Kind[] kinds) throws SQLException, IOException {
+        for (int i = 0; i < kinds.length; i++) {
+            if (i > 0) {
+                put((byte) ',');
+            }
+            int column = i + 1;
+            switch (kinds[i]) {
+                case INTEGER -> {
+                    long value = resultSet.getLong(column);
+                    if (!resultSet.wasNull()) {
+                        putDecimal(value);
+                    }
+                }
+                case FLOATING -> {
+                    double value = resultSet.getDouble(column);
+                    if (!resultSet.wasNull()) {
+                        putAscii(Double.toString(value));
+                    }
+                }
+                case BOOLEAN -> {
+                    boolean value = resultSet.getBoolean(column);
+                    if (!resultSet.wasNull()) {
+                        putAscii(value ? "true" : "false");
+                    }
+                }
+                case BINARY -> {
+                    byte[] value = resultSet.getBytes(column);
+                    if (value != null) {
+                        putHex(value);
+                    }
+                }
+                default -> {
+                    String value = resultSet.getString(column);
+                    if (value != null) {
+                        putCsv(value);
+                    }
+                }
+            }
+        }
+        put((byte) '\r').put((byte) '\n');
+    }
+
+    /**
+     * Writes binary header of column count and labels.
+     *
+     * @param metaData Metadata of exported result set.
+     * @throws SQLException when result set raises an exception.
+     * @throws IOException  when the channel raises an exception.
+     */
+    private void binaryHeader(ResultSetMetaData metaData) throws SQLException, IOException {
+        putInt(metaData.getColumnCount());
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            putString(metaData.getColumnLabel(i));
+        }
+    }
+
+    /**
+     * Writes current row of result set as tagged binary values.
+     *
+     * @param resultSet Result set positioned at exported row.
+     * @param kinds     Kinds of columns.
+     * @throws SQLException when result set raises an exception.
+     * @throws IOException  when the channel raises an exception.
+     */
+    private void binaryRow(ResultSet resultSet, Kind[] kinds) throws SQLException, IOException {
+        for (int i = 0; i < kinds.length; i++) {
+            int column = i + 1;
+            switch (kinds[i]) {
+                case INTEGER -> {
+                    long value = resultSet.getLong(column);
+                    if (resultSet.wasNull()) {
+                        put(NULL);
+                    } else {
+                        put(LONG).putZigZag(value);
+                    }
+                }
+                case FLOATING -> {
+                    double value = resultSet.getDouble(column);
+                    if (resultSet.wasNull()) {
+                        put(NULL);
+                    } else {
+                        put(DOUBLE).putLong(Double.doubleToRawLongBits(value));
+                    }
+                }
+                case BOOLEAN -> {
+                    boolean value = resultSet.getBoolean(column);
+                    if (resultSet.wasNull()) {
+                        put(NULL);
+                    } else {
+                        put(value ? TRUE : FALSE);
+                    }
+                }
+                case BINARY -> {
+                    byte[] value = resultSet.getBytes(column);
+                    if (value == null) {
+                        put(NULL);
+                    } else {
+                        put(BYTES).putVarint(value.length).put(value);
+                    }
+                }
+                default -> {
+                    String value = resultSet.getString(column);
+                    if (value == null) {
+                        put(NULL);
+                    } else {
+                        put(STRING).putString(value);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts a byte.
+     *
+     * @param value Written byte.
+     * @return This object.
+     * @throws IOException when the channel raises an exception.
+     */
+    ExportWriter put(byte value) throws IOException {
+        ensure(1);
+        buffer.put(value);
+        return this;
+    }
+
+    /**
+     * Puts bytes.
+     *
+     * @param value Written bytes.
+     * @return This object.
+     * @throws IOException when the channel raises an exception.
+     */
+    ExportWriter put(byte[] value) throws IOException {
+        int offset = 0;
+        while (offset < value.length) {
+            ensure(1);
+            int length = Math.min(buffer.remaining(), value.length - offset);
+            buffer.put(value, offset, length);
+            offset += length;
+        }
+        return this;
+    }
+
+    /**
+     * Puts a 4-byte big-endian integer.
+     *
+     * @param value Written integer.
+     * @return This object.
+     * @throws IOException when the channel raises an exception.
+     */
+    ExportWriter putInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+        return this;
+    }
+
+    /**
+     * Puts an 8-byte big-endian integer.
+     *
+     * @param value Written integer.
+     * @return This object.
+     * @throws IOException when the channel raises an exception.
+     */
+    ExportWriter putLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+        return this;
+    }
+
+    /**
+     * Puts an unsigned variable-length integer, 7 bits per byte, least significant group first.
+     *
+     * @param value Written non-negative integer.
+     * @return This object.
+     * @throws IOException when the channel raises an exception.
+     */
+    ExportWriter putVarint(int value) throws IOException {
+        ensure(5);
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+        return this;
+    }
+
+    /**
+     * Puts a signed variable-length integer, zig-zag encoded so that numbers of small magnitude take few bytes, 7 bits
+     * per byte, least significant group first.
+     *
+     * @param value Written integer.
+     * @return This object.
+     * @throws IOException when the channel raises an exception.
+     */
+    ExportWriter putZigZag(long value) throws IOException {
+        ensure(10);
+        long encoded = (value << 1) ^ (value >> 63);
+        while ((encoded & ~0x7FL) != 0) {
+            buffer.put((byte) ((encoded & 0x7F) | 0x80));
+            encoded >>>= 7;
+        }
+        buffer.put((byte) encoded);
+        return this;
+    }
+
+    /**
+     * Puts decimal digits of a number.
+     *
+     * @param value Written number.
+     * @return This object.
+     * @throws IOException when the channel raises an exception.
+     */
+    ExportWriter putDecimal(long value) throws IOException {
+        ensure(digits.length);
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + Math.abs(value % 10));
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            buffer.put(digits[--count]);
+        }
+        return this;
+    }
+
+    /**
+     * Puts a string consisting only of ASCII characters.
+     *
+     * @param value Written string.
+     * @return This object.
+     * @throws IOException when the channel raises an exception.
+     */
+    ExportWriter putAscii(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            put((byte) value.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Puts hexadecimal digits of bytes.
+     *
+     * @param value Written bytes.
+     * @return This object.
+     * @throws IOException when the channel raises an exception.
+     */
+    ExportWriter putHex(byte[] value) throws IOException {
+        for (byte b : value) {
+            ensure(2);
+            buffer.put(HEX[(b >> 4) & 0xF]).put(HEX[b & 0xF]);
+        }
+        return this;
+    }
+
+    /**
+     * Puts a string as CSV field, quoting it when it contains a separator, quote or line break.
+     *
+     * @param value Written string.
+     * @return This object.
+     * @throws IOException when the channel raises an exception.
+     */
+    ExportWriter putCsv(String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0; i < value.length() && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\r' || c == '\n';
+        }
+        if (quoted) {
+            put((byte) '"');
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                put((byte) '"');
+            }
+            i = putUtf8(value, i);
+        }
+        if (quoted) {
+            put((byte) '"');
+        }
+        return this;
+    }
+
+    /**
+     * Puts a length-prefixed UTF-8 string.
+     *
+     * @param value Written string.
+     * @return This object.
+     * @throws IOException when the channel raises an exception.
+     */
+    ExportWriter putString(String value) throws IOException {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        putVarint(length);
+        for (int i = 0; i < value.length(); i++) {
+            i = putUtf8(value, i);
+        }
+        return this;
+    }
+
+    /**
+     * Puts UTF-8 encoding of a character. Unpaired surrogates are encoded as three bytes.
+     *
+     * @param value String containing the character.
+     * @param index Index of the character.
+     * @return Index of the last char of the character, which differs from the index for surrogate pairs.
+     * @throws IOException when the channel raises an exception.
+     */
+    private int putUtf8(String value, int index) throws IOException {
+        ensure(4);
+        char c = value.charAt(index);
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length()
+                && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int code = Character.toCodePoint(c, value.charAt(++index));
+            buffer.put((byte) (0xF0 | code >> 18)).put((byte) (0x80 | code >> 12 & 0x3F))
+                    .put((byte) (0x80 | code >> 6 & 0x3F)).put((byte) (0x80 | code & 0x3F));
+        } else {
+            buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+        }
+        return index;
+    }
+
+    /**
+     * Makes room in the buffer, writing its contents to the channel when needed.
+     *
+     * @param bytes Number of bytes that must fit the buffer.
+     * @throws IOException when the channel raises an exception.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes contents of the buffer to the channel.
+     *
+     * @throws IOException when the channel raises an exception.
+     */
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Kind of exported column.
+     */
+    private enum Kind {
+
+        /**
+         * Integer read as {@code long}.
+         */
+        INTEGER,
+
+        /**
+         * Floating point number read as {@code double}.
+         */
+        FLOATING,
+
+        /**
+         * Boolean.
+         */
+        BOOLEAN,
+
+        /**
+         * Bytes.
+         */
+        BINARY,
+
+        /**
+         * Any other value read as string, including decimals and temporal values.
+         */
+        TEXT
+    }
+}
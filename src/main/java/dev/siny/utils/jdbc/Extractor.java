@@ -22,12 +22,15 @@
 
 package dev.siny.utils.jdbc;
 
+import java.nio.channels.WritableByteChannel;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * Extractor of complete resultSet to object or a collection of objects.
  *
@@ -51,7 +54,7 @@ public interface Extractor<T> {
             if (!rs.next()) {
                 return handler.handle(null);
             }
-            return Optional.ofNullable(mapper.map(rs));
+            return Optional.ofNullable(mapper.bind(rs).map(rs));
         };
     }
 
@@ -69,14 +72,62 @@ public interface Extractor<T> {
             if (!rs.next()) {
                 return handler.handle(null);
             }
+            var bound = mapper.bind(rs);
             List<T> results = new ArrayList<>();
             do {
-                results.add(mapper.map(rs));
+                results.add(bound.map(rs));
             } while (rs.next());
             return results;
         };
     }
 
+    /**
+     * Extractor that processes multiple rows from result set, keeping at most provided number of rows on the heap.
+     * When the result set has more rows, all rows are encoded by the codec into a memory-mapped temporary file and
+     * decoded on every access. The returned list has to be closed to delete the file.
+     *
+     * @param mapper          Mapper used to process the result set rows.
+     * @param codec           Codec used to store rows in the file.
+     * @param maxRowsInMemory Number of rows kept on the heap.
+     * @param <T>             Type of mapped object.
+     * @return List of mapped objects, empty when result set is empty.
+     */
+    static <T> Extractor<SpillingList<T>> extractSpilling(RowMapper<T> mapper, RowCodec<T> codec,
+                                                          int maxRowsInMemory) {
+        requireNonNull(mapper);
+        requireNonNull(codec);
+        if (maxRowsInMemory < 0) {
+            throw new IllegalArgumentException("maxRowsInMemory must not be negative");
+        }
+        return rs -> rs.next() ? SpillingList.read(rs, mapper, codec, maxRowsInMemory) : SpillingList.empty();
+    }
+
+    /**
+     * Extractor that writes all rows from result set to a channel, encoding values directly into a reusable direct
+     * buffer instead of mapping them to objects. Exceptions raised by the channel are wrapped in
+     * {@link java.sql.SQLException} and passed to the handler of the operation.
+     *
+     * @param channel Channel receiving exported rows, e.g. a {@link java.nio.channels.FileChannel}. It is not
+     *                closed.
+     * @param format  Format of exported rows.
+     * @return Summary of the export.
+     */
+    static Extractor<ExportSummary> exportTo(WritableByteChannel channel, ExportFormat format) {
+        requireNonNull(channel);
+        requireNonNull(format);
+        return rs -> ExportWriter.export(rs, format, channel);
+    }
+
+    /**
+     * Extractor that reads all rows from result set into primitive arrays, one per column. Columnar result uses a
+     * fraction of memory of a list of row objects and its columns can be aggregated using primitive streams.
+     *
+     * @return Columnar result.
+     */
+    static Extractor<ColumnarResult> extractColumns() {
+        return ColumnarResult::read;
+    }
+
     /**
      * Processes resultSet.
      *
@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tuner of fetch size of queries executed by {@link DataSourceHelper}, based on a profile of previous executions of
+ * the same SQL query.
+ * <p>
+ * Profile holds an average number of rows returned by the query and a size of a row estimated from display sizes of
+ * its columns. Fetch size is set so that an average result is transferred in a single round trip, as long as it fits
+ * the memory budget and limits of fetch size. Queries without a profile keep the default fetch size of the driver.
+ * Fetch size set by a {@link Setter} or passed to {@code fetchStream} takes precedence over the tuned one.
+ * <p>
+ * When the maximum number of profiles is reached, the profile of the query executed least recently is replaced.
+ * Tuning can be turned off, so that all queries keep the default fetch size of the driver.
+ *
+ * @author Dariusz Szwarc
+ * @see DataSourceHelper#fetchSizeTuner()
+ */
+public final class FetchSizeTuner {
+
+
+    /**
+     * Maximum estimated size of a single column, in bytes.
+     */
+    private static final int MAX_COLUMN_SIZE = 4096;
+
+    /**
+     * Estimated overhead of a single column, in bytes.
+     */
+    private static final int COLUMN_OVERHEAD = 16;
+
+    /**
+     * Profiles by SQL query.
+     */
+    private final Map<String, Profile> profiles = new ConcurrentHashMap<>();
+
+    /**
+     * Whether fetch sizes are tuned.
+     */
+    private volatile boolean enabled = true;
+
+    /**
+     * Maximum number of profiled queries.
+     */
+    private volatile int maxProfiles = 1024;
+
+    /**
+     * Minimum fetch size.
+     */
+    private volatile int minFetchSize = 1;
+
+    /**
+     * Maximum fetch size.
+     */
+    private volatile int maxFetchSize = 10000;
+
+    /**
+     * Maximum estimated size of rows fetched in a single round trip, in bytes.
+     */
+    private volatile long memoryBudget = 8 << 20;
+
+    /**
+     * Creates instance of FetchSizeTuner.
+     */
+    FetchSizeTuner() {
+    }
+
+    /**
+     * @param enabled Whether fetch sizes are tuned. Profiles are kept when tuning is turned off. Defaults to true.
+     * @return This object.
+     */
+    public FetchSizeTuner enabled(boolean enabled) {
+        this.enabled = enabled;
+        return this;
+    }
+
+    /**
+     * @param maxProfiles Maximum number of profiled queries. Defaults to 1024.
+     * @return This object.
+     */
+    public FetchSizeTuner maxProfiles(int maxProfiles) {
+        if (maxProfiles < 1) {
+            throw new IllegalArgumentException("Maximum number of profiles must be positive: " + maxProfiles);
+        }
+        this.maxProfiles = maxProfiles;
+        return this;
+    }
+
+    /**
+     * @param minFetchSize Minimum tuned fetch size. Defaults to 1.
+     * @return This object.
+     */
+    public FetchSizeTuner minFetchSize(int minFetchSize) {
+        if (minFetchSize < 1 || minFetchSize > maxFetchSize) {
+            throw new IllegalArgumentException("Minimum fetch size must be between 1 and " + maxFetchSize + ": "
+                    + minFetchSize);
+        }
+        this.minFetchSize = minFetchSize;
+        return this;
+    }
+
+    /**
+     * @param maxFetchSize Maximum tuned fetch size. Defaults to 10000.
+     * @return This object.
+     */
+    public FetchSizeTuner maxFetchSize(int maxFetchSize) {
+        if (maxFetchSize < minFetchSize) {
+            throw new IllegalArgumentException("Maximum fetch size must not be less than " + minFetchSize + ": "
+                    + maxFetchSize);
+        }
+        this.maxFetchSize = maxFetchSize;
+        return this;
+    }
+
+    /**
+     * @param memoryBudget Maximum estimated size of rows fetched in a single round trip, in bytes. Defaults to 8 MiB.
+     * @return This object.
+     */
+    public FetchSizeTuner memoryBudget(long memoryBudget) {
+        if (memoryBudget < 1) {
+            throw new IllegalArgumentException("Memory budget must be positive: " + memoryBudget);
+        }
+        this.memoryBudget = memoryBudget;
+        return this;
+    }
+
+    /**
+     * @param sql SQL query.
+     * @return Profile of the query, empty if it was not executed yet.
+     */
+    public Optional<Profile> profile(String sql) {
+        return Optional.ofNullable(profiles.get(sql));
+    }
+
+    /**
+     * @return Profiles by SQL query.
+     */
+    public Map<String, Profile> profiles() {
+        return Collections.unmodifiableMap(new HashMap<>(profiles));
+    }
+
+    /**
+     * Forgets all profiles.
+     */
+    public void reset() {
+        profiles.clear();
+    }
+
+    /**
+     * @param sql SQL query.
+     * @return Tuned fetch size of the query or zero if the query has no profile or tuning is turned off.
+     */
+    int fetchSize(String sql) {
+        if (!enabled) {
+            return 0;
+        }
+        var profile = profiles.get(sql);
+        return profile == null ? 0 : profile.fetchSize();
+    }
+
+    /**
+     * Records an execution of the query.
+     *
+     * @param sql       SQL query.
+     * @param rows      Number of rows returned by the query, ignored if negative or tuning is turned off.
+     * @param resultSet Result set of the query, used to estimate size of a row of a new profile.
+     * @throws SQLException when result set raises an exception.
+     */
+    void record(String sql, long rows, ResultSet resultSet) throws SQLException {
+        if (rows < 0 || !enabled) {
+            return;
+        }
+        var profile = profiles.get(sql);
+        if (profile == null) {
+            while (profiles.size() >= maxProfiles) {
+                evict();
+            }
+            profile = profiles.computeIfAbsent(sql, key -> new Profile());
+        }
+        if (profile.rowSize == 0) {
+            profile.rowSize = rowSize(resultSet);
+        }
+        profile.record(rows);
+    }
+
+    /**
+     * Removes the profile of the query executed least recently.
+     */
+    private void evict() {
+        String oldest = null;
+        long oldestTime = 0;
+        for (var entry : profiles.entrySet()) {
+            long time = entry.getValue().lastRecorded;
+            if (oldest == null || time - oldestTime < 0) {
+                oldest = entry.getKey();
+                oldestTime = time;
+            }
+        }
+        if (oldest != null) {
+            profiles.remove(oldest);
+        }
+    }
+
+    /**
+     * Estimates size of a row from display sizes of its columns.
+     *
+     * @param resultSet Result set of the row.
+     * @return Estimated size of a row, in bytes.
+     * @throws SQLException when result set raises an exception.
+     */
+    private static int rowSize(ResultSet resultSet) throws SQLException {
+        var metaData = resultSet.getMetaData();
+        int size = 0;
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            size += Math.min(Math.max(metaData.getColumnDisplaySize(i), 0), MAX_COLUMN_SIZE) + COLUMN_OVERHEAD;
+        }
+        return Math.max(size, 1);
+    }
+
+    /**
+     * Profile of executions of a query.
+     */
+    public final class Profile {
+
+        /**
+         * Number of recorded executions.
+         */
+        private long executions;
+
+        /**
+         * Exponentially weighted average number of rows.
+         */
+        private double averageRows;
+
+        /**
+         * Maximum number of rows.
+         */
+        private long maxRows;
+
+        /**
+         * Time of the last recorded execution, in nanoseconds.
+         */
+        private volatile long lastRecorded = System.nanoTime();
+
+        /**
+         * Estimated size of a row, in bytes, zero if not estimated yet.
+         */
+        private volatile int rowSize;
+
+        /**
+         * Creates instance of Profile.
+         */
+        private Profile() {
+        }
+
+        /**
+         * @return Number of recorded executions.
+         */
+        public synchronized long executions() {
+            return executions;
+        }
+
+        /**
+         * @return Average number of rows of recent executions.
+         */
+        public synchronized double averageRows() {
+            return averageRows;
+        }
+
+        /**
+         * @return Maximum number of rows.
+         */
+        public synchronized long maxRows() {
+            return maxRows;
+        }
+
+        /**
+         * @return Estimated size of a row, in bytes.
+         */
+        public int rowSize() {
+            return rowSize;
+        }
+
+        /**
+         * @return Fetch size applied to the next execution of the query.
+         */
+        public int fetchSize() {
+            double rows;
+            synchronized (this) {
+                rows = averageRows;
+            }
+            long budget = memoryBudget / Math.max(rowSize, 1);
+            long fetchSize = Math.min(Math.min((long) Math.ceil(rows) + 1, budget), maxFetchSize);
+            return (int) Math.max(fetchSize, minFetchSize);
+        }
+
+        /**
+         * Records an execution of the query.
+         *
+         * @param rows Number of rows returned by the query.
+         */
+        private synchronized void record(long rows) {
+            lastRecorded = System.nanoTime();
+            averageRows = executions++ == 0 ? rows : averageRows + (rows - averageRows) / 4;
+            maxRows = Math.max(maxRows, rows);
+        }
+
+        @Override
+        public String toString() {
+            return "executions=" + executions() + ", averageRows=" + averageRows() + ", maxRows=" + maxRows()
+                    + ", rowSize=" + rowSize + ", fetchSize=" + fetchSize();
+        }
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Executor of updates that commits concurrent updates together, so a single commit is paid for many of them.
+ * <p>
+ * Updates are queued and applied by a single writer thread. The writer takes as many queued updates as arrive within
+ * the window, up to the maximum group size, and executes them one by one in a single transaction on one connection.
+ * When any update of the group fails, the group is rolled back and its updates are executed again, each in its own
+ * transaction, so a failing update fails only its caller. When all updates succeed but the commit fails, the outcome
+ * of the transaction is unknown, so the updates are not executed again and the failure is passed to the handlers of
+ * all updates of the group.
+ * <p>
+ * Collection parameters are not expanded. Configuration methods should be called before the first update.
+ *
+ * @author Dariusz Szwarc
+ */
+public final class GroupCommitter implements AutoCloseable {
+
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(GroupCommitter.class);
+
+    /**
+     * Interval of checking whether the committer was closed, in milliseconds.
+     */
+    private static final long POLL_INTERVAL = 100;
+
+    /**
+     * Helper used to execute updates.
+     */
+    private final DataSourceHelper helper;
+
+    /**
+     * Queued updates.
+     */
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Sizes of committed groups.
+     */
+    private final Histogram groupSizes = new Histogram();
+
+    /**
+     * Number of groups executed again update by update.
+     */
+    private final LongAdder retriedGroups = new LongAdder();
+
+    /**
+     * Maximum number of updates of a group.
+     */
+    private volatile int maxGroupSize = 64;
+
+    /**
+     * Time of collecting updates into a group, in nanoseconds.
+     */
+    private volatile long window = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * Writer thread, null until the first update.
+     */
+    private Thread writer;
+
+    /**
+     * Whether the committer was closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates instance of GroupCommitter.
+     *
+     * @param helper Helper used to execute updates.
+     */
+    private GroupCommitter(DataSourceHelper helper) {
+        this.helper = requireNonNull(helper, "helper");
+    }
+
+    /**
+     * Creates a GroupCommitter. The writer thread is started by the first update.
+     *
+     * @param helper Helper used to execute updates.
+     * @return New GroupCommitter object.
+     */
+    public static GroupCommitter create(DataSourceHelper helper) {
+        return new GroupCommitter(helper);
+    }
+
+    /**
+     * @param maxGroupSize Maximum number of updates committed together. Defaults to 64.
+     * @return This object.
+     */
+    public GroupCommitter maxGroupSize(int maxGroupSize) {
+        if (maxGroupSize < 1) {
+            throw new IllegalArgumentException("Maximum group size must be positive: " + maxGroupSize);
+        }
+        this.maxGroupSize = maxGroupSize;
+        return this;
+    }
+
+    /**
+     * @param window Time of collecting updates into a group after the first one. Defaults to 1 millisecond.
+     * @return This object.
+     */
+    public GroupCommitter window(Duration window) {
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("Window must not be negative: " + window);
+        }
+        this.window = window.toNanos();
+        return this;
+    }
+
+    /**
+     * Executes an update within a group and waits until the group is committed.
+     *
+     * @param sql        Parameterized SQL query.
+     * @param parameters Parameters that are passed to the parameterized query.
+     * @return Number of affected rows or zero when the update fails.
+     */
+    public int update(String sql, Object... parameters) {
+        return update(sql, Setter.forParameters(parameters), Handler.returning(e -> 0));
+    }
+
+    /**
+     * Executes an update within a group and waits until the group is committed.
+     *
+     * @param sql     Parameterized SQL query.
+     * @param setter  Setter of parameters for parameterized SQL query.
+     * @param handler Handler of exception raised by the update executed on its own or by the commit of its group,
+     *                invoked on the calling thread.
+     * @return Number of affected rows.
+     * @throws IllegalStateException When the committer is closed.
+     */
+    public int update(String sql, Setter setter, Handler<Integer> handler) {
+        var pending = new Pending(requireNonNull(sql, "sql"), requireNonNull(setter, "setter"));
+        enqueue(pending);
+        try {
+            return pending.result.join();
+        } catch (CompletionException e) {
+            var cause = e.getCause();
+            if (cause instanceof UncheckedSQLException) {
+                return handler.handle(((UncheckedSQLException) cause).getCause());
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Group of updates failed", cause);
+        }
+    }
+
+    /**
+     * @return Distribution of number of updates of committed groups.
+     */
+    public Histogram.Snapshot groupSizes() {
+        return groupSizes.snapshot();
+    }
+
+    /**
+     * @return Number of groups that failed and were executed again update by update.
+     */
+    public long retriedGroups() {
+        return retriedGroups.sum();
+    }
+
+    /**
+     * Stops accepting updates, waits until queued updates are applied and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            thread = writer;
+        }
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Queues an update, starting the writer thread unless it is running. The update is queued under the same lock
+     * as closing, so the writer never exits while an update is being queued.
+     *
+     * @param pending Queued update.
+     * @throws IllegalStateException When the committer is closed.
+     */
+    private synchronized void enqueue(Pending pending) {
+        if (closed) {
+            throw new IllegalStateException("Group committer is closed");
+        }
+        if (writer == null) {
+            writer = new Thread(this::write, "jdbc-group-commit");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        queue.add(pending);
+    }
+
+    /**
+     * Collects and executes groups until the committer is closed and its queue is empty.
+     */
+    private void write() {
+        var group = new ArrayList<Pending>();
+        try {
+            while (!closed || !queue.isEmpty()) {
+                var first = queue.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + window;
+                int limit = maxGroupSize;
+                while (group.size() < limit) {
+                    var next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                execute(group);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            log.warn("Group commit writer interrupted, failing queued updates");
+            synchronized (this) {
+                closed = true;
+            }
+            var interrupted = new IllegalStateException("Group commit writer interrupted", e);
+            group.forEach(pending -> pending.result.completeExceptionally(interrupted));
+            queue.forEach(pending -> pending.result.completeExceptionally(interrupted));
+        }
+    }
+
+    /**
+     * Executes a group in a single transaction, falling back to executing its updates one by one when an update
+     * fails. Any failure completes the updates of the group, so the writer keeps running.
+     *
+     * @param group Executed updates.
+     */
+    private void execute(List<Pending> group) {
+        groupSizes.record(group.size());
+        boolean[] applied = {false};
+        try {
+            int[] counts = helper.inSession(session -> {
+                int[] result = new int[group.size()];
+                for (int i = 0; i < result.length; i++) {
+                    var pending = group.get(i);
+                    result[i] = session.update(pending.sql, pending.setter,
+                            Handler.throwing(UncheckedSQLException::new));
+                }
+                applied[0] = true;
+                return result;
+            }, true, DataSourceHelper.DEFAULT_STATEMENT_CACHE_SIZE, Handler.throwing(UncheckedSQLException::new));
+            for (int i = 0; i < counts.length; i++) {
+                group.get(i).result.complete(counts[i]);
+            }
+        } catch (Throwable e) {
+            if (group.size() == 1 || applied[0]) {
+                group.forEach(pending -> pending.result.completeExceptionally(e));
+                return;
+            }
+            log.debug("Group of {} updates failed, executing updates one by one", group.size(), e);
+            retriedGroups.increment();
+            for (var pending : group) {
+                try {
+                    pending.result.complete(helper.update(pending.sql, pending.setter,
+                            Handler.throwing(UncheckedSQLException::new)));
+                } catch (Throwable individual) {
+                    pending.result.completeExceptionally(individual);
+                }
+            }
+        }
+    }
+
+    /**
+     * Update waiting for its group.
+     */
+    private static final class Pending {
+
+        /**
+         * Parameterized SQL query.
+         */
+        private final String sql;
+
+        /**
+         * Setter of parameters.
+         */
+        private final Setter setter;
+
+        /**
+         * Number of affected rows.
+         */
+        private final CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        /**
+         * Creates instance of Pending.
+         *
+         * @param sql    Parameterized SQL query.
+         * @param setter Setter of parameters.
+         */
+        Pending(String sql, Setter setter) {
+            this.sql = sql;
+            this.setter = setter;
+        }
+    }
+}
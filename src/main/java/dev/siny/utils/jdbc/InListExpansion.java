@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Expansion of collection parameters into lists of placeholders, e.g. for {@code IN (?)} predicates.
+ * <p>
+ * A collection is expanded to a number of placeholders that is the nearest power of two not smaller than its size,
+ * and the remaining placeholders repeat its last element. This keeps the number of distinct SQL texts small, so both
+ * the database and the driver can reuse prepared statements.
+ * <p>
+ * Empty collections and collections larger than {@link #MAX_BUCKET} are rejected. An empty list is not valid SQL and
+ * binding {@code NULL} instead would make {@code NOT IN} match no rows. Splitting a large collection into several
+ * statements would be correct only for a plain {@code IN} predicate of a query without ordering, limits or
+ * aggregates, and would make an update non-atomic.
+ *
+ * @author Dariusz Szwarc
+ */
+final class InListExpansion {
+
+    /**
+     * Maximum number of placeholders a single collection is expanded to.
+     */
+    static final int MAX_BUCKET = 1024;
+
+    /**
+     * Maximum number of cached expanded SQL texts.
+     */
+    private static final int MAX_EXPANDED = 4096;
+
+    /**
+     * Expanded SQL texts by original SQL text and bucket sizes, least recently used first.
+     */
+    private static final Map<String, String> EXPANDED = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    return size() > MAX_EXPANDED;
+                }
+            });
+
+    /**
+     * Prevents instantiation of utility class.
+     */
+    private InListExpansion() {
+    }
+
+    /**
+     * @param parameters Parameters of a query. May be null.
+     * @return Whether any of the parameters is a collection.
+     */
+    static boolean containsCollection(Object[] parameters) {
+        if (parameters == null) {
+            return false;
+        }
+        for (var parameter : parameters) {
+            if (parameter instanceof Collection) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Expands collection parameters of a query.
+     *
+     * @param sql        Parameterized SQL query, with a single placeholder for every collection parameter.
+     * @param parameters Parameters of the query.
+     * @return Expanded query.
+     * @throws IllegalArgumentException When a collection is empty or larger than {@link #MAX_BUCKET}, or number of
+     *                                  placeholders does not match number of parameters.
+     */
+    static Expanded expand(String sql, Object[] parameters) {
+        for (var parameter : parameters) {
+            if (parameter instanceof Collection) {
+                int size = ((Collection<?>) parameter).size();
+                if (size == 0 || size > MAX_BUCKET) {
+                    throw new IllegalArgumentException("Collection parameter must have between 1 and " + MAX_BUCKET
+                            + " elements, but has " + size);
+                }
+            }
+        }
+        var key = new StringBuilder(sql).append('\0');
+        List<Object> flattened = new ArrayList<>(parameters.length);
+        for (var parameter : parameters) {
+            if (parameter instanceof Collection) {
+                var elements = (Collection<?>) parameter;
+                int bucket = bucket(elements.size());
+                key.append(bucket).append(',');
+                flattened.addAll(elements);
+                var last = flattened.get(flattened.size() - 1);
+                for (int i = elements.size(); i < bucket; i++) {
+                    flattened.add(last);
+                }
+            } else {
+                key.append("1,");
+                flattened.add(parameter);
+            }
+        }
+        var cacheKey = key.toString();
+        var expandedSql = EXPANDED.get(cacheKey);
+        if (expandedSql == null) {
+            expandedSql = rewrite(sql, parameters);
+            EXPANDED.put(cacheKey, expandedSql);
+        }
+        return new Expanded(expandedSql, flattened.toArray());
+    }
+
+    /**
+     * Rewrites SQL replacing placeholders of collection parameters with lists of placeholders.
+     *
+     * @param sql        Parameterized SQL query.
+     * @param parameters Parameters of the query.
+     * @return Rewritten SQL.
+     */
+    private static String rewrite(String sql, Object[] parameters) {
+        var rewritten = new StringBuilder(sql.length() + 16);
+        int parameter = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            int skipped = SqlScanner.skip(sql, i);
+            if (skipped > i) {
+                rewritten.append(sql, i, skipped);
+                i = skipped - 1;
+                continue;
+            }
+            char c = sql.charAt(i);
+            if (c == '?') {
+                if (parameter == parameters.length) {
+                    throw new IllegalArgumentException("Query has more placeholders than parameters: " + sql);
+                }
+                if (parameters[parameter] instanceof Collection) {
+                    int bucket = bucket(((Collection<?>) parameters[parameter]).size());
+                    rewritten.append('?');
+                    for (int j = 1; j < bucket; j++) {
+                        rewritten.append(", ?");
+                    }
+                    parameter++;
+                    continue;
+                }
+                parameter++;
+            }
+            rewritten.append(c);
+        }
+        if (parameter != parameters.length) {
+            throw new IllegalArgumentException("Query has fewer placeholders than parameters: " + sql);
+        }
+        return rewritten.toString();
+    }
+
+    /**
+     * @param size Size of collection.
+     * @return Number of placeholders the collection is expanded to.
+     */
+    private static int bucket(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
+    /**
+     * Query with expanded parameters.
+     */
+    static final class Expanded {
+
+        /**
+         * Expanded SQL query.
+         */
+        private final String sql;
+
+        /**
+         * Parameters of expanded query.
+         */
+        private final Object[] parameters;
+
+        /**
+         * Creates instance of Expanded.
+         *
+         * @param sql        Expanded SQL query.
+         * @param parameters Parameters of expanded query.
+         */
+        Expanded(String sql, Object[] parameters) {
+            this.sql = sql;
+            this.parameters = parameters;
+        }
+
+        /**
+         * @return Expanded SQL query.
+         */
+        String sql() {
+            return sql;
+        }
+
+        /**
+         * @return Parameters of expanded query.
+         */
+        Object[] parameters() {
+            return parameters;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Pager walking a query by key instead of offset, so every page costs the same regardless of its position.
+ * <p>
+ * The query must select rows with keys greater than its only parameter, ordered by the key, e.g.
+ * {@code SELECT * FROM item WHERE id > ? ORDER BY id}. Number of rows of a page is limited by
+ * {@link java.sql.Statement#setMaxRows}, and the key of the last row of a page is the parameter of the next page.
+ * Key columns must be unique, otherwise rows sharing the key of the last row of a page are skipped.
+ * <p>
+ * Pages are fetched by a background task ahead of the consumer, so the database works while the consumer processes
+ * a page. Closing the stream stops the task after its current query. The task also stops when a fetched page is not
+ * taken by the consumer within the consumer timeout, e.g. when the stream is abandoned without being closed, and
+ * the consumer then fails when it runs out of fetched pages.
+ * <p>
+ * Configuration methods must not be called while pages are being fetched.
+ *
+ * @param <K> Type of key.
+ * @param <T> Type of row.
+ * @author Dariusz Szwarc
+ */
+public final class KeysetPager<K, T> {
+
+    /**
+     * Operations used to execute queries.
+     */
+    private final Operations operations;
+
+    /**
+     * Query selecting rows with keys greater than its parameter, ordered by the key.
+     */
+    private final String sql;
+
+    /**
+     * Mapper of rows.
+     */
+    private final RowMapper<T> mapper;
+
+    /**
+     * Function returning key of a mapped row.
+     */
+    private final Function<? super T, ? extends K> key;
+
+    /**
+     * Maximum number of rows of a page.
+     */
+    private int pageSize = 1000;
+
+    /**
+     * Number of pages fetched ahead of the consumer.
+     */
+    private int prefetch = 1;
+
+    /**
+     * Executor of background tasks fetching pages.
+     */
+    private Executor executor = KeysetPager::startDaemon;
+
+    /**
+     * Maximum time of waiting for the consumer to take a fetched page, in nanoseconds.
+     */
+    private long consumerTimeout = Duration.ofMinutes(1).toNanos();
+
+    /**
+     * Creates instance of KeysetPager.
+     *
+     * @param operations Operations used to execute queries.
+     * @param sql        Query selecting rows with keys greater than its parameter, ordered by the key.
+     * @param mapper     Mapper of rows.
+     * @param key        Function returning key of a mapped row.
+     */
+    private KeysetPager(Operations operations, String sql, RowMapper<T> mapper, Function<? super T, ? extends K> key) {
+        this.operations = requireNonNull(operations, "operations");
+        this.sql = requireNonNull(sql, "sql");
+        this.mapper = requireNonNull(mapper, "mapper");
+        this.key = requireNonNull(key, "key");
+    }
+
+    /**
+     * Creates a KeysetPager.
+     *
+     * @param operations Operations used to execute queries.
+     * @param sql        Query with a single parameter selecting rows with keys greater than the parameter, ordered
+     *                   by the key, e.g. {@code SELECT * FROM item WHERE id > ? ORDER BY id}.
+     * @param mapper     Mapper of rows.
+     * @param key        Function returning key of a mapped row.
+     * @param <K>        Type of key.
+     * @param <T>        Type of row.
+     * @return New KeysetPager object.
+     */
+    public static <K, T> KeysetPager<K, T> create(Operations operations, String sql, RowMapper<T> mapper,
+                                                  Function<? super T, ? extends K> key) {
+        return new KeysetPager<>(operations, sql, mapper, key);
+    }
+
+    /**
+     * @param pageSize Maximum number of rows of a page. Defaults to 1000.
+     * @return This object.
+     */
+    public KeysetPager<K, T> pageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.pageSize = pageSize;
+        return this;
+    }
+
+    /**
+     * @param prefetch Number of pages fetched ahead of the consumer. Defaults to 1.
+     * @return This object.
+     */
+    public KeysetPager<K, T> prefetch(int prefetch) {
+        if (prefetch < 1) {
+            throw new IllegalArgumentException("Number of prefetched pages must be positive: " + prefetch);
+        }
+        this.prefetch = prefetch;
+        return this;
+    }
+
+    /**
+     * @param executor Executor of background tasks fetching pages, one task per stream. Defaults to starting a new
+     *                 daemon thread.
+     * @return This object.
+     */
+    public KeysetPager<K, T> executor(Executor executor) {
+        this.executor = requireNonNull(executor, "executor");
+        return this;
+    }
+
+    /**
+     * @param consumerTimeout Maximum time of waiting for the consumer to take a fetched page, after which fetching
+     *                        stops. Defaults to 1 minute.
+     * @return This object.
+     */
+    public KeysetPager<K, T> consumerTimeout(Duration consumerTimeout) {
+        if (consumerTimeout.isNegative() || consumerTimeout.isZero()) {
+            throw new IllegalArgumentException("Consumer timeout must be positive: " + consumerTimeout);
+        }
+        this.consumerTimeout = consumerTimeout.toNanos();
+        return this;
+    }
+
+    /**
+     * Streams pages of rows with keys greater than provided key. The stream must be closed to stop fetching pages
+     * when it is not consumed completely.
+     *
+     * @param after Key preceding the first row, e.g. minimal value of the key.
+     * @return Stream of non-empty pages.
+     * @throws UncheckedSQLException When a query fails.
+     */
+    public Stream<List<T>> pages(K after) {
+        var pages = new Pages(after);
+        executor.execute(pages::fetch);
+        var spliterator = Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(spliterator, false).onClose(pages::cancel);
+    }
+
+    /**
+     * Streams rows with keys greater than provided key. The stream must be closed to stop fetching pages when it is
+     * not consumed completely.
+     *
+     * @param after Key preceding the first row, e.g. minimal value of the key.
+     * @return Stream of rows.
+     * @throws UncheckedSQLException When a query fails.
+     */
+    public Stream<T> rows(K after) {
+        return pages(after).flatMap(List::stream);
+    }
+
+    /**
+     * Starts a daemon thread.
+     *
+     * @param task Task executed by the thread.
+     */
+    private static void startDaemon(Runnable task) {
+        var thread = new Thread(task, "jdbc-keyset-prefetch");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Pages of a single stream, fetched by a background task into a bounded queue.
+     */
+    private final class Pages implements Iterator<List<T>> {
+
+        /**
+         * Marker of the end of pages.
+         */
+        private final Object end = new Object();
+
+        /**
+         * Fetched pages, followed by the end marker or a failure.
+         */
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(prefetch);
+
+        /**
+         * Maximum number of rows of a page.
+         */
+        private final int pageSize = KeysetPager.this.pageSize;
+
+        /**
+         * Maximum time of waiting for the consumer to take a fetched page, in nanoseconds.
+         */
+        private final long consumerTimeout = KeysetPager.this.consumerTimeout;
+
+        /**
+         * Key preceding the next fetched page.
+         */
+        private K after;
+
+        /**
+         * Element taken from the queue and not returned yet.
+         */
+        private Object next;
+
+        /**
+         * Whether the consumer stopped the iteration.
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * Whether the task stopped because the consumer did not take a page in time.
+         */
+        private volatile boolean timedOut;
+
+        /**
+         * Creates instance of Pages.
+         *
+         * @param after Key preceding the first row.
+         */
+        Pages(K after) {
+            this.after = after;
+        }
+
+        /**
+         * Fetches pages until the last page is fetched or the iteration is cancelled.
+         */
+        void fetch() {
+            try {
+                while (!cancelled) {
+                    List<T> page = operations.fetch(sql, statement -> {
+                        statement.setMaxRows(pageSize);
+                        statement.setObject(1, after);
+                    }, Extractor.extractMany(mapper, Handler.returning(e -> List.of())),
+                            Handler.throwing(UncheckedSQLException::new));
+                    if (!page.isEmpty()) {
+                        after = key.apply(page.get(page.size() - 1));
+                        put(page);
+                    }
+                    if (page.size() < pageSize) {
+                        break;
+                    }
+                }
+                put(end);
+            } catch (RuntimeException | Error e) {
+                put(e);
+            }
+        }
+
+        /**
+         * Puts an element into the queue, waiting for space unless the iteration is cancelled or the consumer does not
+         * take a page within the timeout.
+         *
+         * @param element Element put into the queue.
+         */
+        private void put(Object element) {
+            long deadline = System.nanoTime() + consumerTimeout;
+            try {
+                while (!cancelled && !queue.offer(element, 100, TimeUnit.MILLISECONDS)) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        timedOut = true;
+                        cancelled = true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                cancelled = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Stops the iteration and releases fetched pages.
+         */
+        void cancel() {
+            cancelled = true;
+            queue.clear();
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    while ((next = queue.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                        if (timedOut && queue.isEmpty()) {
+                            throw new IllegalStateException("Fetching pages stopped after the consumer did not take"
+                                    + " a page within " + Duration.ofNanos(consumerTimeout));
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    cancel();
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a page", e);
+                }
+            }
+            if (next instanceof RuntimeException) {
+                throw (RuntimeException) next;
+            }
+            if (next instanceof Error) {
+                throw (Error) next;
+            }
+            return next != end;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            var page = (List<T>) next;
+            next = null;
+            return page;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Connector that acquires a permit of {@link ConcurrencyLimiter} before every connection and releases it together
+ * with the connection. Round-trip times of leases, excluding the wait for a permit and leases of streamed queries, are
+ * reported to the limiter.
+ *
+ * @author Dariusz Szwarc
+ */
+final class LimitingConnector implements Connector {
+
+    /**
+     * Connector that provides connections and statements.
+     */
+    private final Connector parent;
+
+    /**
+     * Limiter of concurrent connections.
+     */
+    private final ConcurrencyLimiter limiter;
+
+    /**
+     * Acquisition times of leased connections, in nanoseconds.
+     */
+    private final Map<Connection, Long> leased = new ConcurrentHashMap<>();
+
+    /**
+     * Creates instance of LimitingConnector.
+     *
+     * @param parent  Connector that provides connections and statements.
+     * @param limiter Limiter of concurrent connections.
+     */
+    LimitingConnector(Connector parent, ConcurrencyLimiter limiter) {
+        this.parent = requireNonNull(parent, "parent");
+        this.limiter = requireNonNull(limiter, "limiter");
+    }
+
+    @Override
+    public Connection acquire() throws SQLException {
+        limiter.acquire();
+        try {
+            return parent.acquire();
+        } catch (SQLException | RuntimeException e) {
+            limiter.release(-1);
+            throw e;
+        }
+    }
+
+    @Override
+    public void release(Connection connection) throws SQLException {
+        var start = leased.remove(connection);
+        try {
+            parent.release(connection);
+        } finally {
+            limiter.release(start == null ? -1 : System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        return parent.prepare(connection, sql);
+    }
+
+    @Override
+    public void release(String sql, PreparedStatement statement) throws SQLException {
+        parent.release(sql, statement);
+    }
+
+    @Override
+    public Lease lease(String sql) throws SQLException {
+        limiter.acquire();
+        long start = System.nanoTime();
+        Connection connection;
+        try {
+            connection = parent.acquire();
+        } catch (SQLException | RuntimeException e) {
+            limiter.release(-1);
+            throw e;
+        }
+        leased.put(connection, start);
+        try {
+            return new Lease(this, connection, sql, prepare(connection, sql));
+        } catch (SQLException | RuntimeException e) {
+            try {
+                release(connection);
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Lease leaseStream(String sql) throws SQLException {
+        return Connector.super.lease(sql);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SQL statement with named parameters, e.g. {@code :id}, rewritten to positional placeholders. Names are parsed
+ * outside of quoted literals, quoted identifiers and comments, and {@code ::} is not treated as a name prefix, so
+ * PostgreSQL casts are preserved.
+ *
+ * @author Dariusz Szwarc
+ */
+final class NamedStatement {
+
+    /**
+     * SQL with named parameters replaced by positional placeholders.
+     */
+    private final String sql;
+
+    /**
+     * Positions of parameters, starting from 1, by name.
+     */
+    private final Map<String, int[]> positions;
+
+    /**
+     * Names of parameters by position, starting from 0.
+     */
+    private final String[] names;
+
+    /**
+     * Number of positional placeholders.
+     */
+    private final int size;
+
+    /**
+     * Parses SQL with named parameters.
+     *
+     * @param sql SQL with named parameters.
+     */
+    NamedStatement(String sql) {
+        var rewritten = new StringBuilder(sql.length());
+        Map<String, List<Integer>> found = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        int position = 0;
+        for (int i = 0; i < sql.length(); i++) {
+            int skipped = SqlScanner.skip(sql, i);
+            if (skipped > i) {
+                rewritten.append(sql, i, skipped);
+                i = skipped - 1;
+                continue;
+            }
+            char c = sql.charAt(i);
+            if (c == ':' && i + 1 < sql.length() && sql.charAt(i + 1) == ':') {
+                rewritten.append("::");
+                i++;
+                continue;
+            } else if (c == ':' && i + 1 < sql.length() && Character.isJavaIdentifierStart(sql.charAt(i + 1))) {
+                int end = i + 1;
+                while (end < sql.length() && Character.isJavaIdentifierPart(sql.charAt(end))) {
+                    end++;
+                }
+                var name = sql.substring(i + 1, end);
+                found.computeIfAbsent(name, key -> new ArrayList<>()).add(++position);
+                names.add(name);
+                rewritten.append('?');
+                i = end - 1;
+                continue;
+            } else if (c == '?') {
+                throw new IllegalArgumentException("Positional placeholders can not be mixed with named parameters: "
+                        + sql);
+            }
+            rewritten.append(c);
+        }
+        this.sql = rewritten.toString();
+        this.size = position;
+        this.names = names.toArray(String[]::new);
+        this.positions = new HashMap<>();
+        found.forEach((name, list) -> positions.put(name, list.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    /**
+     * @return SQL with named parameters replaced by positional placeholders.
+     */
+    String sql() {
+        return sql;
+    }
+
+    /**
+     * @return Number of positional placeholders.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param position Position of a placeholder, starting from 1.
+     * @return Name of the parameter at the position.
+     */
+    String name(int position) {
+        return names[position - 1];
+    }
+
+    /**
+     * Finds positions of a named parameter.
+     *
+     * @param name Name of the parameter.
+     * @return Positions of the parameter, starting from 1.
+     * @throws IllegalArgumentException When the statement does not have such parameter.
+     */
+    int[] positions(String name) {
+        var found = positions.get(name);
+        if (found == null) {
+            throw new IllegalArgumentException("Unknown parameter " + name + ", expected one of "
+                    + Arrays.toString(positions.keySet().toArray()));
+        }
+        return found;
+    }
+}
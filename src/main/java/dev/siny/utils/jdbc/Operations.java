@@ -24,14 +24,28 @@ package dev.siny.utils.jdbc;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
 
 /**
  * Available operations on JDBC.
+ * <p>
+ * Operations accepting parameters as objects expand a {@link java.util.Collection} parameter into a list of
+ * placeholders, so {@code WHERE id IN (?)} may be executed with a collection of ids. The number of placeholders is
+ * rounded up to a power of two by repeating the last element. Collections must have between 1 and 1024 elements,
+ * otherwise {@link IllegalArgumentException} is thrown.
  *
  * @author Dariusz Szwarc
  */
 public interface Operations {
 
+    /**
+     * Fetch size used by streams when it is neither specified nor tuned.
+     */
+    int DEFAULT_FETCH_SIZE = 1000;
+
     /**
      * Fetches a single object.
      *
@@ -96,6 +110,48 @@ public interface Operations {
      */
     <T> List<T> fetchMany(String sql, RowMapper<T> mapper, Object... parameters);
 
+    /**
+     * Lazily fetches a stream of objects using provided parameters. Rows are read from the database while the stream
+     * is consumed, so only the rows of current fetch are kept in memory.
+     *
+     * @param sql        Parameterized SQL query.
+     * @param mapper     Mapper used to map result set.
+     * @param parameters Parameters that are passed to the parameterized query.
+     * @param <T>        Type of produced object.
+     * @return {@code Stream} of results. It must be closed unless it is fully consumed.
+     */
+    default <T> Stream<T> fetchStream(String sql, RowMapper<T> mapper, Object... parameters) {
+        if (InListExpansion.containsCollection(parameters)) {
+            var expanded = InListExpansion.expand(sql, parameters);
+            return fetchStream(expanded.sql(), mapper, expanded.parameters());
+        }
+        return fetchStream(sql, Setter.forParameters(parameters), mapper, DEFAULT_FETCH_SIZE,
+                Handler.returning(e -> Stream.empty()));
+    }
+
+    /**
+     * Lazily fetches a stream of objects. The query is executed using forward-only, read-only result set and
+     * connection is held until the stream is closed or fully consumed.
+     * <p>
+     * The default implementation is not lazy: it fetches all rows using {@link #fetch} and ignores the fetch size.
+     *
+     * @param sql       SQL query.
+     * @param setter    Setter of parameters for parameterized SQL query.
+     * @param mapper    Mapper used to map result set.
+     * @param fetchSize Number of rows fetched from the database at once. Zero leaves the driver default.
+     * @param handler   Handler of exceptions raised during execution of query. Exceptions raised while the stream is
+     *                  consumed are thrown as {@link UncheckedSQLException}.
+     * @param <T>       Type of produced object.
+     * @return {@code Stream} of results. It must be closed unless it is fully consumed.
+     * @apiNote Some drivers, e.g. PostgreSQL, respect fetch size only when the connection is not in auto-commit
+     * mode.
+     */
+    default <T> Stream<T> fetchStream(String sql, Setter setter, RowMapper<T> mapper, int fetchSize,
+                                      Handler<Stream<T>> handler) {
+        Extractor<List<T>> extractor = Extractor.extractMany(mapper, Handler.returning(e -> List.of()));
+        return fetch(sql, setter, resultSet -> extractor.process(resultSet).stream(), handler);
+    }
+
     /**
      * Fetches an object.
      *
@@ -137,4 +193,77 @@ public interface Operations {
      * @return Number of affected rows.
      */
     int update(String sql, Setter setter, Handler<Integer> handler);
+
+    /**
+     * Executes an update for every parameter array, sending them to the database in batches.
+     *
+     * @param sql        Parameterized SQL query.
+     * @param parameters Parameters of consecutive executions of the parameterized query.
+     * @param batchSize  Maximum number of executions sent to the database in a single batch. Must be positive.
+     * @return Number of affected rows for every executed batch.
+     */
+    default int[] updateBatch(String sql, Iterable<Object[]> parameters, int batchSize) {
+        return updateBatch(sql, parameters, Binder.forParameters(), batchSize, Handler.returning(e -> 0));
+    }
+
+    /**
+     * Executes an update for every item, sending them to the database in batches. A single connection and prepared
+     * statement is used for all batches.
+     * <p>
+     * When a batch fails, the rows affected by its statements that the driver reports as executed are added to the
+     * result of the handler. Remaining batches are executed unless the handler throws. When the failure is not
+     * specific to a batch, e.g. the connection is lost, no further batches are executed and the returned array ends
+     * with the result of the handler, so its length tells how many batches were attempted. In auto-commit mode every
+     * batch executed before the failure is already committed, and some drivers also commit the statements of the
+     * failed batch that preceded the failing one; use a transaction to apply all items atomically.
+     * <p>
+     * The default implementation executes every item as a separate {@link #update(String, Setter, Handler)} and
+     * reports the sum of every batchSize consecutive updates, invoking the handler for every failed item.
+     *
+     * @param sql       Parameterized SQL query.
+     * @param items     Items bound to consecutive executions of the parameterized query.
+     * @param binder    Binder of item to parameters of the query.
+     * @param batchSize Maximum number of executions sent to the database in a single batch. Must be positive.
+     * @param handler   Handler of exceptions raised during execution of a batch. It is invoked once for every failed
+     *                  batch, usually with {@link java.sql.BatchUpdateException}.
+     * @param <T>       Type of bound item.
+     * @return Number of affected rows for every executed batch.
+     */
+    default <T> int[] updateBatch(String sql, Iterable<T> items, Binder<T> binder, int batchSize,
+                                  Handler<Integer> handler) {
+        requireNonNull(binder, "binder");
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        var counts = IntStream.builder();
+        var iterator = items.iterator();
+        while (iterator.hasNext()) {
+            int count = 0;
+            for (int i = 0; i < batchSize && iterator.hasNext(); i++) {
+                count += update(sql, binder.toSetter(iterator.next()), handler);
+            }
+            counts.add(count);
+        }
+        return counts.build().toArray();
+    }
+
+    /**
+     * Executes an update for every item, sending them to the database in batches. A single connection and prepared
+     * statement is used for all batches.
+     *
+     * @param sql       Parameterized SQL query.
+     * @param items     Items bound to consecutive executions of the parameterized query.
+     * @param binder    Binder of item to parameters of the query.
+     * @param batchSize Maximum number of executions sent to the database in a single batch. Must be positive.
+     * @param handler   Handler of exceptions raised during execution of a batch.
+     * @param <T>       Type of bound item.
+     * @return Number of affected rows for every executed batch.
+     * @see #updateBatch(String, Iterable, Binder, int, Handler)
+     */
+    default <T> int[] updateBatch(String sql, Stream<T> items, Binder<T> binder, int batchSize,
+                                  Handler<Integer> handler) {
+        try (items) {
+            return updateBatch(sql, (Iterable<T>) items::iterator, binder, batchSize, handler);
+        }
+    }
 }
@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Reusable values of named parameters of a {@link Query} or {@link Update}. Values stay set between executions, so
+ * only changed values need to be set again. Primitive values are stored without boxing. Every parameter must be set,
+ * possibly to null, before the first execution.
+ * <p>
+ * Parameters are not thread safe. Every thread should use its own instance, obtained from
+ * {@link Query#parameters()} or {@link Update#parameters()}.
+ *
+ * @author Dariusz Szwarc
+ */
+public final class Parameters implements Setter {
+
+    /**
+     * Kind of value that was not set.
+     */
+    private static final byte UNSET = 0;
+
+    /**
+     * Kind of value set using {@link #set(String, Object)}.
+     */
+    private static final byte OBJECT = 1;
+
+    /**
+     * Kind of value set using {@link #setLong(String, long)}.
+     */
+    private static final byte LONG = 2;
+
+    /**
+     * Kind of value set using {@link #setInt(String, int)}.
+     */
+    private static final byte INT = 3;
+
+    /**
+     * Kind of value set using {@link #setDouble(String, double)}.
+     */
+    private static final byte DOUBLE = 4;
+
+    /**
+     * Statement whose parameters are set.
+     */
+    private final NamedStatement statement;
+
+    /**
+     * Kinds of values by position.
+     */
+    private final byte[] kinds;
+
+    /**
+     * Object values by position.
+     */
+    private final Object[] objects;
+
+    /**
+     * Primitive values by position. Doubles are stored as raw long bits.
+     */
+    private final long[] primitives;
+
+    /**
+     * Creates instance of Parameters.
+     *
+     * @param statement Statement whose parameters are set.
+     */
+    Parameters(NamedStatement statement) {
+        this.statement = statement;
+        this.kinds = new byte[statement.size()];
+        this.objects = new Object[statement.size()];
+        this.primitives = new long[statement.size()];
+    }
+
+    /**
+     * Sets value of a parameter.
+     *
+     * @param name  Name of the parameter.
+     * @param value Value of the parameter. May be null.
+     * @return This object.
+     * @throws IllegalArgumentException When the statement does not have such parameter.
+     */
+    public Parameters set(String name, Object value) {
+        for (int position : statement.positions(name)) {
+            kinds[position - 1] = OBJECT;
+            objects[position - 1] = value;
+        }
+        return this;
+    }
+
+    /**
+     * Sets value of a parameter without boxing.
+     *
+     * @param name  Name of the parameter.
+     * @param value Value of the parameter.
+     * @return This object.
+     * @throws IllegalArgumentException When the statement does not have such parameter.
+     */
+    public Parameters setLong(String name, long value) {
+        return setPrimitive(name, LONG, value);
+    }
+
+    /**
+     * Sets value of a parameter without boxing.
+     *
+     * @param name  Name of the parameter.
+     * @param value Value of the parameter.
+     * @return This object.
+     * @throws IllegalArgumentException When the statement does not have such parameter.
+     */
+    public Parameters setInt(String name, int value) {
+        return setPrimitive(name, INT, value);
+    }
+
+    /**
+     * Sets value of a parameter without boxing.
+     *
+     * @param name  Name of the parameter.
+     * @param value Value of the parameter.
+     * @return This object.
+     * @throws IllegalArgumentException When the statement does not have such parameter.
+     */
+    public Parameters setDouble(String name, double value) {
+        return setPrimitive(name, DOUBLE, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Sets up the prepared statement with values of all parameters.
+     *
+     * @param statement PreparedStatement that will be set up.
+     * @throws SQLException          When prepared statement raises an exception when setting the parameters.
+     * @throws IllegalStateException When any of the parameters was not set.
+     */
+    @Override
+    public void setup(PreparedStatement statement) throws SQLException {
+        for (int i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case OBJECT -> statement.setObject(i + 1, objects[i]);
+                case LONG -> statement.setLong(i + 1, primitives[i]);
+                case INT -> statement.setInt(i + 1, (int) primitives[i]);
+                case DOUBLE -> statement.setDouble(i + 1, Double.longBitsToDouble(primitives[i]));
+                default -> throw new IllegalStateException("Parameter " + this.statement.name(i + 1)
+                        + " is not set: " + this.statement.sql());
+            }
+        }
+    }
+
+    /**
+     * Verifies that parameters belong to a statement.
+     *
+     * @param owner Statement that is executed with the parameters.
+     * @return This object.
+     * @throws IllegalArgumentException When the parameters were created for another statement.
+     */
+    Parameters checkOwner(NamedStatement owner) {
+        if (owner != statement) {
+            throw new IllegalArgumentException("Parameters were created for another statement: " + statement.sql());
+        }
+        return this;
+    }
+
+    /**
+     * Sets primitive value of a parameter.
+     *
+     * @param name  Name of the parameter.
+     * @param kind  Kind of the value.
+     * @param value Value of the parameter.
+     * @return This object.
+     */
+    private Parameters setPrimitive(String name, byte kind, long value) {
+        for (int position : statement.positions(name)) {
+            kinds[position - 1] = kind;
+            objects[position - 1] = null;
+            primitives[position - 1] = value;
+        }
+        return this;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Query with named parameters, parsed once and executed many times. Mapper, extractors and handlers are bound when
+ * the query is created, so execution with reused {@link Parameters} does not allocate anything except results.
+ * <p>
+ * Like operations that do not accept a handler, a failed query returns an empty result, unless it is executed by a
+ * transactional {@link Session}, where it throws {@link UncheckedSQLException}.
+ * <p>
+ * Query is immutable and may be shared by threads.
+ *
+ * @param <T> Type of produced object.
+ * @author Dariusz Szwarc
+ */
+public final class Query<T> {
+
+    /**
+     * Operations used to execute the query.
+     */
+    private final Operations operations;
+
+    /**
+     * Parsed statement.
+     */
+    private final NamedStatement statement;
+
+    /**
+     * Handler returning empty result of {@link #fetchOne}.
+     */
+    private final Handler<Optional<T>> oneHandler = Handler.returning(e -> Optional.empty());
+
+    /**
+     * Handler returning empty result of {@link #fetchMany}.
+     */
+    private final Handler<List<T>> manyHandler = Handler.returning(e -> Collections.emptyList());
+
+    /**
+     * Default handler of failure of {@link #fetchOne}.
+     */
+    private final Handler<Optional<T>> oneFailure;
+
+    /**
+     * Default handler of failure of {@link #fetchMany}.
+     */
+    private final Handler<List<T>> manyFailure;
+
+    /**
+     * Extractor of result of {@link #fetchOne}.
+     */
+    private final Extractor<Optional<T>> oneExtractor;
+
+    /**
+     * Extractor of result of {@link #fetchMany}.
+     */
+    private final Extractor<List<T>> manyExtractor;
+
+    /**
+     * Creates instance of Query.
+     *
+     * @param operations Operations used to execute the query.
+     * @param sql        SQL query with named parameters.
+     * @param mapper     Mapper used to map result set.
+     */
+    private Query(Operations operations, String sql, RowMapper<T> mapper) {
+        this.operations = requireNonNull(operations, "operations");
+        this.statement = new NamedStatement(requireNonNull(sql, "sql"));
+        requireNonNull(mapper, "mapper");
+        this.oneExtractor = Extractor.extractOne(mapper, oneHandler);
+        this.manyExtractor = Extractor.extractMany(mapper, manyHandler);
+        boolean throwing = operations instanceof Session && ((Session) operations).transactional();
+        this.oneFailure = throwing ? Handler.throwing(UncheckedSQLException::new) : oneHandler;
+        this.manyFailure = throwing ? Handler.throwing(UncheckedSQLException::new) : manyHandler;
+    }
+
+    /**
+     * Creates a Query.
+     *
+     * @param operations Operations that will be used to execute the query.
+     * @param sql        SQL query with named parameters, e.g. {@code SELECT * FROM item WHERE id = :id}.
+     * @param mapper     Mapper used to map result set.
+     * @param <T>        Type of produced object.
+     * @return New Query object.
+     */
+    public static <T> Query<T> of(Operations operations, String sql, RowMapper<T> mapper) {
+        return new Query<>(operations, sql, mapper);
+    }
+
+    /**
+     * Creates new parameters of the query. Parameters should be reused by subsequent executions.
+     *
+     * @return New Parameters object.
+     */
+    public Parameters parameters() {
+        return new Parameters(statement);
+    }
+
+    /**
+     * Fetches a single object.
+     *
+     * @param parameters Parameters of the query, created by {@link #parameters()}.
+     * @return {@code Optional} of result or empty if the database does not contain any results.
+     * @throws UncheckedSQLException When the query fails in a transactional session.
+     */
+    public Optional<T> fetchOne(Parameters parameters) {
+        return fetchOne(parameters, oneFailure);
+    }
+
+    /**
+     * Fetches a single object.
+     *
+     * @param parameters Parameters of the query, created by {@link #parameters()}.
+     * @param handler    Handler of exceptions raised during execution of query.
+     * @return {@code Optional} of result or empty if the database does not contain any results.
+     */
+    public Optional<T> fetchOne(Parameters parameters, Handler<Optional<T>> handler) {
+        return operations.fetch(statement.sql(), parameters.checkOwner(statement), oneExtractor, handler);
+    }
+
+    /**
+     * Fetches a list of objects.
+     *
+     * @param parameters Parameters of the query, created by {@link #parameters()}.
+     * @return {@code List} of results.
+     * @throws UncheckedSQLException When the query fails in a transactional session.
+     */
+    public List<T> fetchMany(Parameters parameters) {
+        return fetchMany(parameters, manyFailure);
+    }
+
+    /**
+     * Fetches a list of objects.
+     *
+     * @param parameters Parameters of the query, created by {@link #parameters()}.
+     * @param handler    Handler of exceptions raised during execution of query.
+     * @return {@code List} of results.
+     */
+    public List<T> fetchMany(Parameters parameters, Handler<List<T>> handler) {
+        return operations.fetch(statement.sql(), parameters.checkOwner(statement), manyExtractor, handler);
+    }
+
+    /**
+     * @return SQL query with named parameters replaced by positional placeholders.
+     */
+    public String sql() {
+        return statement.sql();
+    }
+}
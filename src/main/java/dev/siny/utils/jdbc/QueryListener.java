@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.SQLException;
+
+/**
+ * Listener notified about queries executed by {@link DataSourceHelper}. Listener is invoked synchronously on the
+ * thread executing the query, so implementations should be fast and thread safe.
+ *
+ * @author Dariusz Szwarc
+ * @see QueryMetrics
+ */
+public interface QueryListener {
+
+    /**
+     * Invoked after a query or update completes.
+     *
+     * @param sql          Executed SQL query.
+     * @param acquireNanos Time spent obtaining connection and preparing statement, in nanoseconds.
+     * @param executeNanos Time spent executing the statement, in nanoseconds.
+     * @param mappingNanos Time spent processing the result set, in nanoseconds. Zero for updates.
+     * @param rows         Number of returned or affected rows, or -1 if it is not known.
+     */
+    void onQuery(String sql, long acquireNanos, long executeNanos, long mappingNanos, long rows);
+
+    /**
+     * Invoked when execution of a query or update fails.
+     *
+     * @param sql SQL query that failed.
+     * @param e   Raised exception.
+     */
+    void onError(String sql, SQLException e);
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Listener that records latency histograms and counters for every executed statement. SQL texts that differ only in
+ * whitespace are recorded together. Recording is lock-free, so the listener can be shared by all threads.
+ * <p>
+ * Number of tracked SQL texts is limited, as every statement keeps several histograms. Statements executed after the
+ * limit is reached are recorded together under {@link #OTHER_STATEMENTS}, so an application that concatenates
+ * literals into SQL does not grow the metrics without bound.
+ *
+ * @author Dariusz Szwarc
+ */
+public final class QueryMetrics implements QueryListener {
+
+    /**
+     * Pattern matching sequences of whitespace.
+     */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    /**
+     * Maximum number of tracked SQL texts when it is not specified.
+     */
+    public static final int DEFAULT_MAX_STATEMENTS = 512;
+
+    /**
+     * Key of snapshot of statements that were not tracked separately because the limit was reached.
+     */
+    public static final String OTHER_STATEMENTS = "(other statements)";
+
+    /**
+     * Maximum number of tracked SQL texts.
+     */
+    private final int maxStatements;
+
+    /**
+     * Statistics by SQL text, as passed to the listener.
+     */
+    private final Map<String, Statistics> bySql = new ConcurrentHashMap<>();
+
+    /**
+     * Statistics by normalized SQL text.
+     */
+    private final Map<String, Statistics> byNormalizedSql = new ConcurrentHashMap<>();
+
+    /**
+     * Statistics of statements executed after the limit of tracked SQL texts was reached.
+     */
+    private final Statistics other = new Statistics();
+
+    /**
+     * Creates an empty QueryMetrics tracking up to {@link #DEFAULT_MAX_STATEMENTS} SQL texts.
+     */
+    public QueryMetrics() {
+        this(DEFAULT_MAX_STATEMENTS);
+    }
+
+    /**
+     * Creates an empty QueryMetrics.
+     *
+     * @param maxStatements Maximum number of tracked SQL texts. Must be positive.
+     */
+    public QueryMetrics(int maxStatements) {
+        if (maxStatements < 1) {
+            throw new IllegalArgumentException("Maximum number of statements must be positive: " + maxStatements);
+        }
+        this.maxStatements = maxStatements;
+    }
+
+    @Override
+    public void onQuery(String sql, long acquireNanos, long executeNanos, long mappingNanos, long rows) {
+        var statistics = statistics(sql);
+        statistics.acquire.record(acquireNanos);
+        statistics.execute.record(executeNanos);
+        statistics.mapping.record(mappingNanos);
+        if (rows > 0) {
+            statistics.rows.add(rows);
+        }
+    }
+
+    @Override
+    public void onError(String sql, SQLException e) {
+        statistics(sql).errors.increment();
+    }
+
+    /**
+     * Takes snapshots of statistics of all recorded statements.
+     *
+     * @return Snapshots by normalized SQL text, sorted by the text. Statements that were not tracked separately are
+     * included under {@link #OTHER_STATEMENTS} if any of them was executed.
+     */
+    public Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> snapshots = new TreeMap<>();
+        byNormalizedSql.forEach((sql, statistics) -> snapshots.put(sql, statistics.snapshot()));
+        var others = other.snapshot();
+        if (others.executions() > 0 || others.errors() > 0) {
+            snapshots.put(OTHER_STATEMENTS, others);
+        }
+        return snapshots;
+    }
+
+    /**
+     * Finds or creates statistics of SQL text.
+     *
+     * @param sql SQL text passed to the listener.
+     * @return Statistics of the statement, or shared statistics of other statements when the limit of tracked SQL
+     * texts was reached.
+     */
+    private Statistics statistics(String sql) {
+        var statistics = bySql.get(sql);
+        if (statistics == null) {
+            if (bySql.size() >= maxStatements) {
+                return other;
+            }
+            statistics = bySql.computeIfAbsent(sql,
+                    key -> byNormalizedSql.computeIfAbsent(normalize(key), normalized -> new Statistics()));
+        }
+        return statistics;
+    }
+
+    /**
+     * Normalizes SQL text by collapsing whitespace.
+     *
+     * @param sql SQL text.
+     * @return Normalized SQL text.
+     */
+    static String normalize(String sql) {
+        return WHITESPACE.matcher(sql.strip()).replaceAll(" ");
+    }
+
+    /**
+     * Mutable statistics of a statement.
+     */
+    private static final class Statistics {
+
+        /**
+         * Times spent obtaining connection and preparing statement.
+         */
+        private final Histogram acquire = new Histogram();
+
+        /**
+         * Times spent executing the statement.
+         */
+        private final Histogram execute = new Histogram();
+
+        /**
+         * Times spent processing result sets.
+         */
+        private final Histogram mapping = new Histogram();
+
+        /**
+         * Number of returned or affected rows.
+         */
+        private final LongAdder rows = new LongAdder();
+
+        /**
+         * Number of failed executions.
+         */
+        private final LongAdder errors = new LongAdder();
+
+        /**
+         * @return Snapshot of the statistics.
+         */
+        private Snapshot snapshot() {
+            return new Snapshot(acquire.snapshot(), execute.snapshot(), mapping.snapshot(), rows.sum(),
+                    errors.sum());
+        }
+    }
+
+    /**
+     * Immutable statistics of a statement.
+     */
+    public static final class Snapshot {
+
+        /**
+         * Times spent obtaining connection and preparing statement, in nanoseconds.
+         */
+        private final Histogram.Snapshot acquire;
+
+        /**
+         * Times spent executing the statement, in nanoseconds.
+         */
+        private final Histogram.Snapshot execute;
+
+        /**
+         * Times spent processing result sets, in nanoseconds.
+         */
+        private final Histogram.Snapshot mapping;
+
+        /**
+         * Number of returned or affected rows.
+         */
+        private final long rows;
+
+        /**
+         * Number of failed executions.
+         */
+        private final long errors;
+
+        /**
+         * Creates instance of Snapshot.
+         *
+         * @param acquire Times spent obtaining connection and preparing statement.
+         * @param execute Times spent executing the statement.
+         * @param mapping Times spent processing result sets.
+         * @param rows    Number of returned or affected rows.
+         * @param errors  Number of failed executions.
+         */
+        private Snapshot(Histogram.Snapshot acquire, Histogram.Snapshot execute, Histogram.Snapshot mapping,
+                         long rows, long errors) {
+            this.acquire = acquire;
+            this.execute = execute;
+            this.mapping = mapping;
+            this.rows = rows;
+            this.errors = errors;
+        }
+
+        /**
+         * @return Times spent obtaining connection and preparing statement, in nanoseconds.
+         */
+        public Histogram.Snapshot acquire() {
+            return acquire;
+        }
+
+        /**
+         * @return Times spent executing the statement, in nanoseconds.
+         */
+        public Histogram.Snapshot execute() {
+            return execute;
+        }
+
+        /**
+         * @return Times spent processing result sets, in nanoseconds.
+         */
+        public Histogram.Snapshot mapping() {
+            return mapping;
+        }
+
+        /**
+         * @return Number of successful executions.
+         */
+        public long executions() {
+            return execute.count();
+        }
+
+        /**
+         * @return Number of returned or affected rows.
+         */
+        public long rows() {
+            return rows;
+        }
+
+        /**
+         * @return Number of failed executions.
+         */
+        public long errors() {
+            return errors;
+        }
+
+        @Override
+        public String toString() {
+            return "executions=" + executions() + ", rows=" + rows + ", errors=" + errors + ", acquire=[" + acquire
+                    + "], execute=[" + execute + "], mapping=[" + mapping + "]";
+        }
+    }
+}
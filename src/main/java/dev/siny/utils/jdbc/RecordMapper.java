@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Mapper of rows to records. Every record component is read from the column with matching label, using the canonical
+ * constructor of the record.
+ *
+ * @param <R> Type of produced record.
+ * @author Dariusz Szwarc
+ */
+@SuppressWarnings("preview")
+final class RecordMapper<R> extends CompiledMapper<R> {
+
+    /**
+     * Components of the record.
+     */
+    private final RecordComponent[] components;
+
+    /**
+     * Canonical constructor of the record.
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * Creates instance of RecordMapper.
+     *
+     * @param type   Type of produced record.
+     * @param lookup Lookup that has access to the canonical constructor of the record.
+     */
+    RecordMapper(Class<R> type, MethodHandles.Lookup lookup) {
+        if (!type.isRecord()) {
+            throw new IllegalArgumentException(type.getName() + " is not a record");
+        }
+        this.components = type.getRecordComponents();
+        var types = Arrays.stream(components).map(RecordComponent::getType).toArray(Class<?>[]::new);
+        try {
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class, types));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Unable to access canonical constructor of " + type.getName(), e);
+        }
+    }
+
+    @Override
+    RowMapper<R> compile(Map<String, Integer> columns) throws SQLException {
+        var getters = new MethodHandle[components.length];
+        for (int i = 0; i < components.length; i++) {
+            var column = columns.get(normalize(components[i].getName()));
+            if (column == null) {
+                throw new SQLException("No column for record component " + components[i].getName()
+                        + " among " + describe(columns));
+            }
+            getters[i] = getter(components[i].getType(), column);
+        }
+        var handle = MethodHandles.filterArguments(constructor, 0, getters);
+        handle = MethodHandles.permuteArguments(handle, MethodType.methodType(constructor.type().returnType(),
+                ResultSet.class), new int[getters.length]);
+        var mapper = handle.asType(MethodType.methodType(Object.class, ResultSet.class));
+        return resultSet -> {
+            try {
+                @SuppressWarnings("unchecked")
+                var record = (R) (Object) mapper.invokeExact(resultSet);
+                return record;
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        };
+    }
+}
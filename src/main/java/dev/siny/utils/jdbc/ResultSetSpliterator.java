@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Spliterator that lazily maps rows of an open result set. It owns the result set together with the lease of statement
+ * and connection that produced it and releases them when the result set is exhausted or the spliterator is closed.
+ *
+ * @param <T> Type of produced object.
+ * @author Dariusz Szwarc
+ */
+final class ResultSetSpliterator<T> extends Spliterators.AbstractSpliterator<T> implements AutoCloseable {
+
+    /**
+     * Lease of connection and statement that produced the result set.
+     */
+    private final Connector.Lease lease;
+
+    /**
+     * Result set that is being processed.
+     */
+    private final ResultSet resultSet;
+
+    /**
+     * Mapper used to process the result set rows.
+     */
+    private final RowMapper<T> mapper;
+
+    /**
+     * Callback receiving number of processed rows when the spliterator is closed. May be null.
+     */
+    private final LongConsumer onClose;
+
+    /**
+     * Number of processed rows.
+     */
+    private long rows;
+
+    /**
+     * Flag indicating that resources were already released.
+     */
+    private boolean closed;
+
+    /**
+     * Creates instance of ResultSetSpliterator.
+     *
+     * @param lease     Lease of connection and statement that produced the result set.
+     * @param resultSet Result set that will be processed.
+     * @param mapper    Mapper used to process the result set rows.
+     * @param onClose   Callback receiving number of processed rows when the spliterator is closed. May be null.
+     * @throws SQLException When the mapper can not be bound to the result set.
+     */
+    ResultSetSpliterator(Connector.Lease lease, ResultSet resultSet, RowMapper<T> mapper, LongConsumer onClose)
+            throws SQLException {
+        super(Long.MAX_VALUE, Spliterator.ORDERED);
+        this.lease = lease;
+        this.onClose = onClose;
+        this.resultSet = resultSet;
+        this.mapper = mapper.bind(resultSet);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (!resultSet.next()) {
+                close();
+                return false;
+            }
+            action.accept(mapper.map(resultSet));
+            rows++;
+            return true;
+        } catch (SQLException e) {
+            close();
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (onClose != null) {
+            onClose.accept(rows);
+        }
+        try (lease; resultSet) {
+            // resources are released by try-with-resources
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Operations that execute updates on a primary database and queries on its replicas.
+ * <p>
+ * Every query is sent to the less loaded of two randomly chosen replicas, where load is the number of queries being
+ * executed by the replica multiplied by its recent latency. A replica whose query fails to reach the database, as
+ * reported by a connection exception or SQL state class {@code 08}, is ejected and the query is repeated on the
+ * primary, so the failure handler is called for both attempts. Other failures are handled by the replica and are not
+ * repeated. Ejected replica is probed by a single query after a back-off that doubles with every consecutive failure.
+ * Queries are executed by the primary when no replica is available.
+ * <p>
+ * Replicas may lag behind the primary, so queries that must see preceding updates should be executed by
+ * {@link #primary()}. Results of {@code fetchStream} are read lazily, so only opening the stream is routed.
+ *
+ * @author Dariusz Szwarc
+ */
+public final class RoutingOperations implements Operations {
+
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(RoutingOperations.class);
+
+    /**
+     * Back-off after the first failure of a replica, in nanoseconds.
+     */
+    private static final long MIN_BACKOFF = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * Maximum back-off of a failing replica, in nanoseconds.
+     */
+    private static final long MAX_BACKOFF = TimeUnit.SECONDS.toNanos(30);
+
+    /**
+     * State of a healthy replica.
+     */
+    private static final long HEALTHY = 0;
+
+    /**
+     * State of a replica executing probing query.
+     */
+    private static final long PROBING = -1;
+
+    /**
+     * Replica that failed a query on current thread.
+     */
+    private static final ThreadLocal<Replica> failed = new ThreadLocal<>();
+
+    /**
+     * Operations on the primary database.
+     */
+    private final DataSourceHelper primary;
+
+    /**
+     * Replicas of the primary database.
+     */
+    private final Replica[] replicas;
+
+    /**
+     * Creates instance of RoutingOperations.
+     *
+     * @param primary  Primary database.
+     * @param replicas Replicas of the primary database.
+     * @param listener Listener notified about queries, may be null.
+     */
+    private RoutingOperations(DataSource primary, List<DataSource> replicas, QueryListener listener) {
+        this.primary = listener == null ? DataSourceHelper.create(primary)
+                : DataSourceHelper.builder(primary).listener(listener).build();
+        this.replicas = new Replica[replicas.size()];
+        for (int i = 0; i < this.replicas.length; i++) {
+            this.replicas[i] = new Replica(requireNonNull(replicas.get(i), "replica"), listener);
+        }
+    }
+
+    /**
+     * Creates RoutingOperations.
+     *
+     * @param primary  Primary database.
+     * @param replicas Replicas of the primary database.
+     * @return New RoutingOperations object.
+     */
+    public static RoutingOperations create(DataSource primary, List<DataSource> replicas) {
+        return new RoutingOperations(primary, replicas, null);
+    }
+
+    /**
+     * Creates RoutingOperations that notify listener about queries executed on any database.
+     *
+     * @param primary  Primary database.
+     * @param replicas Replicas of the primary database.
+     * @param listener Listener notified about queries.
+     * @return New RoutingOperations object.
+     */
+    public static RoutingOperations create(DataSource primary, List<DataSource> replicas, QueryListener listener) {
+        return new RoutingOperations(primary, replicas, requireNonNull(listener, "listener"));
+    }
+
+    /**
+     * @return Operations on the primary database, for queries that must see preceding updates.
+     */
+    public DataSourceHelper primary() {
+        return primary;
+    }
+
+    /**
+     * @return Number of replicas that are not ejected.
+     */
+    public int availableReplicas() {
+        int available = 0;
+        for (var replica : replicas) {
+            if (replica.state.get() == HEALTHY) {
+                available++;
+            }
+        }
+        return available;
+    }
+
+    @Override
+    public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper) {
+        return read(operations -> operations.fetchOne(sql, mapper));
+    }
+
+    @Override
+    public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper, Object parameter) {
+        return read(operations -> operations.fetchOne(sql, mapper, parameter));
+    }
+
+    @Override
+    public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper, Object... parameters) {
+        return read(operations -> operations.fetchOne(sql, mapper, parameters));
+    }
+
+    @Override
+    public <T> List<T> fetchMany(String sql, RowMapper<T> mapper) {
+        return read(operations -> operations.fetchMany(sql, mapper));
+    }
+
+    @Override
+    public <T> List<T> fetchMany(String sql, RowMapper<T> mapper, Object parameter) {
+        return read(operations -> operations.fetchMany(sql, mapper, parameter));
+    }
+
+    @Override
+    public <T> List<T> fetchMany(String sql, RowMapper<T> mapper, Object... parameters) {
+        return read(operations -> operations.fetchMany(sql, mapper, parameters));
+    }
+
+    @Override
+    public <T> Stream<T> fetchStream(String sql, RowMapper<T> mapper, Object... parameters) {
+        return read(operations -> operations.fetchStream(sql, mapper, parameters));
+    }
+
+    @Override
+    public <T> Stream<T> fetchStream(String sql, Setter setter, RowMapper<T> mapper, int fetchSize,
+                                     Handler<Stream<T>> handler) {
+        return read(operations -> operations.fetchStream(sql, setter, mapper, fetchSize, handler));
+    }
+
+    @Override
+    public <T> T fetch(String sql, Setter setter, Extractor<T> extractor, Handler<T> handler) {
+        return read(operations -> operations.fetch(sql, setter, extractor, handler));
+    }
+
+    @Override
+    public int update(String sql) {
+        return primary.update(sql);
+    }
+
+    @Override
+    public int update(String sql, Object parameter) {
+        return primary.update(sql, parameter);
+    }
+
+    @Override
+    public int update(String sql, Object... parameters) {
+        return primary.update(sql, parameters);
+    }
+
+    @Override
+    public int update(String sql, Setter setter, Handler<Integer> handler) {
+        return primary.update(sql, setter, handler);
+    }
+
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> parameters, int batchSize) {
+        return primary.updateBatch(sql, parameters, batchSize);
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Iterable<T> items, Binder<T> binder, int batchSize,
+                                 Handler<Integer> handler) {
+        return primary.updateBatch(sql, items, binder, batchSize, handler);
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Stream<T> items, Binder<T> binder, int batchSize,
+                                 Handler<Integer> handler) {
+        return primary.updateBatch(sql, items, binder, batchSize, handler);
+    }
+
+    /**
+     * Executes a query on a replica, repeating it on the primary when the replica fails.
+     *
+     * @param query Executed query.
+     * @param <R>   Type of result.
+     * @return Result of the query.
+     */
+    private <R> R read(Function<Operations, R> query) {
+        var replica = choose();
+        if (replica == null) {
+            return query.apply(primary);
+        }
+        replica.inFlight.incrementAndGet();
+        int ejections = replica.ejections;
+        failed.remove();
+        boolean lost = false;
+        try {
+            var result = query.apply(replica.operations);
+            lost = failed.get() == replica;
+            if (!lost) {
+                return result;
+            }
+        } catch (RuntimeException e) {
+            lost = failed.get() == replica;
+            if (!lost) {
+                throw e;
+            }
+        } finally {
+            replica.inFlight.decrementAndGet();
+            failed.remove();
+            if (lost) {
+                replica.failed(ejections);
+            } else {
+                replica.succeeded(ejections);
+            }
+        }
+        return query.apply(primary);
+    }
+
+    /**
+     * Chooses the less loaded of two random available replicas, or a replica due to be probed. The probe is claimed
+     * only for the returned replica.
+     *
+     * @return Chosen replica or null if none is available.
+     */
+    private Replica choose() {
+        int count = replicas.length;
+        if (count == 0) {
+            return null;
+        }
+        var random = ThreadLocalRandom.current();
+        int first = random.nextInt(count);
+        int second = count == 1 ? first : (first + 1 + random.nextInt(count - 1)) % count;
+        var a = replicas[first];
+        var b = replicas[second];
+        if (b.available() && (!a.available() || b.load() < a.load())) {
+            var swap = a;
+            a = b;
+            b = swap;
+        }
+        if (a.claim()) {
+            return a;
+        }
+        return a != b && b.claim() ? b : null;
+    }
+
+    /**
+     * Checks whether an exception means that the database could not be reached.
+     *
+     * @param e Exception raised by a query.
+     * @return Whether the exception is a connection failure.
+     */
+    private static boolean isConnectionFailure(SQLException e) {
+        var state = e.getSQLState();
+        return e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException
+                || state != null && state.startsWith("08");
+    }
+
+    /**
+     * Replica with its load and health.
+     */
+    private static final class Replica implements QueryListener {
+
+        /**
+         * Replica database.
+         */
+        private final DataSource dataSource;
+
+        /**
+         * Operations on the replica.
+         */
+        private final DataSourceHelper operations;
+
+        /**
+         * Listener of the routing operations, may be null.
+         */
+        private final QueryListener listener;
+
+        /**
+         * Number of queries being executed.
+         */
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        /**
+         * Time when ejected replica will be probed, or {@link #HEALTHY} or {@link #PROBING}.
+         */
+        private final AtomicLong state = new AtomicLong(HEALTHY);
+
+        /**
+         * Number of consecutive failures.
+         */
+        private int failures;
+
+        /**
+         * Number of ejections, so that queries started before an ejection do not affect the state after it.
+         */
+        private volatile int ejections;
+
+        /**
+         * Exponentially weighted average of latency, in nanoseconds. Concurrent updates may be lost.
+         */
+        private volatile long latency;
+
+        /**
+         * Creates instance of Replica.
+         *
+         * @param dataSource Replica database.
+         * @param listener   Listener of the routing operations, may be null.
+         */
+        Replica(DataSource dataSource, QueryListener listener) {
+            this.dataSource = dataSource;
+            this.operations = DataSourceHelper.builder(dataSource).listener(this).build();
+            this.listener = listener;
+        }
+
+        /**
+         * @return Whether the replica is healthy or due to be probed.
+         */
+        boolean available() {
+            long current = state.get();
+            return current == HEALTHY || current != PROBING && System.nanoTime() - current >= 0;
+        }
+
+        /**
+         * Checks whether the replica may execute a query, claiming the probe of an ejected replica due to be probed.
+         *
+         * @return Whether the replica may execute a query.
+         */
+        boolean claim() {
+            long current = state.get();
+            if (current == HEALTHY) {
+                return true;
+            }
+            if (current != PROBING && System.nanoTime() - current >= 0 && state.compareAndSet(current, PROBING)) {
+                log.info("Probing replica {}", this);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return Load of the replica.
+         */
+        double load() {
+            return (inFlight.get() + 1.0) * (latency + 1);
+        }
+
+        /**
+         * Marks the replica as healthy after successful query, unless it was ejected after the query started.
+         *
+         * @param ejections Number of ejections when the query started.
+         */
+        void succeeded(int ejections) {
+            if (state.get() != HEALTHY) {
+                synchronized (this) {
+                    if (this.ejections != ejections) {
+                        return;
+                    }
+                    failures = 0;
+                    state.set(HEALTHY);
+                }
+                log.info("Replica {} is available again", this);
+            }
+        }
+
+        /**
+         * Ejects the replica after failed query, unless it was already ejected after the query started.
+         *
+         * @param ejections Number of ejections when the query started.
+         */
+        synchronized void failed(int ejections) {
+            if (this.ejections != ejections) {
+                return;
+            }
+            this.ejections = ejections + 1;
+            long backoff = Math.min(MAX_BACKOFF, MIN_BACKOFF << Math.min(failures++, 30));
+            state.set(System.nanoTime() + backoff);
+            log.warn("Replica {} is ejected for {} ms", this, TimeUnit.NANOSECONDS.toMillis(backoff));
+        }
+
+        @Override
+        public void onQuery(String sql, long acquireNanos, long executeNanos, long mappingNanos, long rows) {
+            long observed = acquireNanos + executeNanos;
+            long average = latency;
+            latency = average == 0 ? observed : average + (observed - average) / 8;
+            if (listener != null) {
+                listener.onQuery(sql, acquireNanos, executeNanos, mappingNanos, rows);
+            }
+        }
+
+        @Override
+        public void onError(String sql, SQLException e) {
+            if (isConnectionFailure(e)) {
+                failed.set(this);
+            }
+            if (listener != null) {
+                listener.onError(sql, e);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return dataSource.toString();
+        }
+    }
+}
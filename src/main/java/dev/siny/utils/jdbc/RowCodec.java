@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Codec of mapped rows used to store them outside of the heap.
+ *
+ * @param <T> Type of stored object.
+ * @author Dariusz Szwarc
+ * @see Extractor#extractSpilling(RowMapper, RowCodec, int)
+ */
+public interface RowCodec<T> {
+
+    /**
+     * Writes the row.
+     *
+     * @param row Written row.
+     * @param out Output receiving encoded row.
+     * @throws IOException when output raises an exception.
+     */
+    void write(T row, DataOutput out) throws IOException;
+
+    /**
+     * Reads the row written by {@link #write(Object, DataOutput)}.
+     *
+     * @param in Input containing exactly one encoded row.
+     * @return Decoded row.
+     * @throws IOException when input raises an exception.
+     */
+    T read(DataInput in) throws IOException;
+}
@@ -22,6 +22,7 @@
 
 package dev.siny.utils.jdbc;
 
+import java.lang.invoke.MethodHandles;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
@@ -34,6 +35,78 @@ import java.sql.SQLException;
 @FunctionalInterface
 public interface RowMapper<T> {
 
+    /**
+     * Creates a RowMapper that maps rows to a public record. Every record component is read from the column whose
+     * label matches the component name, ignoring case and underscores, using typed getters of result set.
+     * Columns are resolved once for every distinct set of column labels, and the constructor and getters are combined
+     * into a single method handle invoked once per row. The handle is not a JIT constant, so a hand-written mapper
+     * may still be faster; {@code MapperBenchmark} compares them.
+     *
+     * @param type Type of produced record.
+     * @param <R>  Type of produced record.
+     * @return Created RowMapper.
+     * @throws IllegalArgumentException When type is not a record or its canonical constructor is not accessible.
+     */
+    static <R> RowMapper<R> forRecord(Class<R> type) {
+        return forRecord(type, MethodHandles.publicLookup());
+    }
+
+    /**
+     * Creates a RowMapper that maps rows to a record, using provided lookup to access the canonical constructor.
+     *
+     * @param type   Type of produced record.
+     * @param lookup Lookup that has access to the canonical constructor, e.g. {@code MethodHandles.lookup()} of
+     *               the caller for records that are not public or not exported.
+     * @param <R>    Type of produced record.
+     * @return Created RowMapper.
+     * @throws IllegalArgumentException When type is not a record or its canonical constructor is not accessible.
+     * @see #forRecord(Class)
+     */
+    static <R> RowMapper<R> forRecord(Class<R> type, MethodHandles.Lookup lookup) {
+        return new RecordMapper<>(type, lookup);
+    }
+
+    /**
+     * Creates a RowMapper that maps rows to a public bean. The bean is created using its no-argument constructor and
+     * every setter whose property name matches a column label, ignoring case and underscores, is invoked. Columns are
+     * resolved once for every distinct set of column labels.
+     *
+     * @param type Type of produced bean.
+     * @param <B>  Type of produced bean.
+     * @return Created RowMapper.
+     * @throws IllegalArgumentException When the constructor or setters of the bean are not accessible.
+     */
+    static <B> RowMapper<B> forBean(Class<B> type) {
+        return forBean(type, MethodHandles.publicLookup());
+    }
+
+    /**
+     * Creates a RowMapper that maps rows to a bean, using provided lookup to access its constructor and setters.
+     *
+     * @param type   Type of produced bean.
+     * @param lookup Lookup that has access to the constructor and setters of the bean.
+     * @param <B>    Type of produced bean.
+     * @return Created RowMapper.
+     * @throws IllegalArgumentException When the constructor or setters of the bean are not accessible.
+     * @see #forBean(Class)
+     */
+    static <B> RowMapper<B> forBean(Class<B> type, MethodHandles.Lookup lookup) {
+        return new BeanMapper<>(type, lookup);
+    }
+
+    /**
+     * Binds the mapper to a result set before its rows are mapped. Extractors call it once for every result set, so
+     * a mapper that resolves columns by label, e.g. {@link #forRecord(Class)}, does it once instead of for every row.
+     * Code mapping rows outside of extractors should bind the mapper too.
+     *
+     * @param resultSet Result set whose rows will be mapped.
+     * @return Mapper of rows of the result set. This mapper by default.
+     * @throws SQLException when result set raises an exception during processing.
+     */
+    default RowMapper<T> bind(ResultSet resultSet) throws SQLException {
+        return this;
+    }
+
     /**
      * Maps a single row of result set to an object and then returns it.
      *
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Publisher of rows of a query. Every subscription executes the query on its own connection when it first requests
+ * rows and reads only as many rows from the result set as requested. All JDBC work and signals to the subscriber
+ * are executed on the executor. The connection is released when the rows are exhausted, the query fails or the
+ * subscription is cancelled.
+ *
+ * @param <T> Type of published object.
+ * @author Dariusz Szwarc
+ */
+final class RowPublisher<T> implements Flow.Publisher<T> {
+
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(RowPublisher.class);
+
+    /**
+     * Operations used to execute the query.
+     */
+    private final Operations operations;
+
+    /**
+     * Executor of JDBC work and signals.
+     */
+    private final Executor executor;
+
+    /**
+     * SQL query.
+     */
+    private final String sql;
+
+    /**
+     * Setter of parameters of the query.
+     */
+    private final Setter setter;
+
+    /**
+     * Mapper of rows.
+     */
+    private final RowMapper<T> mapper;
+
+    /**
+     * Number of rows fetched from the database in a single round trip.
+     */
+    private final int fetchSize;
+
+    /**
+     * Creates instance of RowPublisher.
+     *
+     * @param operations Operations used to execute the query.
+     * @param executor   Executor of JDBC work and signals.
+     * @param sql        SQL query.
+     * @param setter     Setter of parameters of the query.
+     * @param mapper     Mapper of rows.
+     * @param fetchSize  Number of rows fetched from the database in a single round trip.
+     */
+    RowPublisher(Operations operations, Executor executor, String sql, Setter setter, RowMapper<T> mapper,
+                 int fetchSize) {
+        this.operations = requireNonNull(operations, "operations");
+        this.executor = requireNonNull(executor, "executor");
+        this.sql = requireNonNull(sql, "sql");
+        this.setter = requireNonNull(setter, "setter");
+        this.mapper = requireNonNull(mapper, "mapper");
+        this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        requireNonNull(subscriber, "subscriber");
+        subscriber.onSubscribe(new RowSubscription(subscriber));
+    }
+
+    /**
+     * Subscription reading rows on demand. Signals are serialized by a work-in-progress counter, so at most one
+     * task of the subscription runs on the executor at a time.
+     */
+    private final class RowSubscription implements Flow.Subscription {
+
+        /**
+         * Subscriber receiving rows.
+         */
+        private final Flow.Subscriber<? super T> subscriber;
+
+        /**
+         * Number of requested and not yet published rows.
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * Number of signals not yet processed by the drain loop.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * Whether the subscription was cancelled.
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * Exception caused by invalid request, signalled by the drain loop.
+         */
+        private volatile IllegalArgumentException invalidRequest;
+
+        /**
+         * Stream of rows, null until the query is executed.
+         */
+        private Stream<T> stream;
+
+        /**
+         * Iterator of rows, null until the query is executed.
+         */
+        private Iterator<T> rows;
+
+        /**
+         * Creates instance of RowSubscription.
+         *
+         * @param subscriber Subscriber receiving rows.
+         */
+        RowSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Requested number of rows must be positive: " + n);
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        /**
+         * Schedules the drain loop unless it is already running. When the executor rejects the loop, the calling
+         * thread owns the subscription, so it closes the stream before signalling the error.
+         */
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    cancelled = true;
+                    close();
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        /**
+         * Publishes requested rows and processes cancellation. The loop leaves the counter of pending signals
+         * positive after a terminal signal, so it is never scheduled again.
+         */
+        private void drain() {
+            int missed = 1;
+            try {
+                do {
+                    if (cancelled) {
+                        close();
+                        return;
+                    }
+                    if (invalidRequest != null) {
+                        cancelled = true;
+                        close();
+                        subscriber.onError(invalidRequest);
+                        return;
+                    }
+                    long requested = demand.get();
+                    if (requested > 0 && rows == null) {
+                        stream = operations.fetchStream(sql, setter, mapper, fetchSize,
+                                Handler.throwing(UncheckedSQLException::new));
+                        rows = stream.iterator();
+                    }
+                    long published = 0;
+                    while (published != requested && !cancelled) {
+                        if (!rows.hasNext()) {
+                            cancelled = true;
+                            close();
+                            subscriber.onComplete();
+                            return;
+                        }
+                        subscriber.onNext(rows.next());
+                        published++;
+                    }
+                    if (published > 0 && requested != Long.MAX_VALUE) {
+                        demand.addAndGet(-published);
+                    }
+                    missed = pending.addAndGet(-missed);
+                } while (missed != 0);
+            } catch (RuntimeException | Error e) {
+                cancelled = true;
+                close();
+                subscriber.onError(e);
+            }
+        }
+
+        /**
+         * Closes the stream, releasing the connection.
+         */
+        private void close() {
+            if (stream != null) {
+                try {
+                    stream.close();
+                } catch (RuntimeException e) {
+                    log.warn("Could not close stream of {}", sql, e);
+                }
+                stream = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Operations bound to a single connection, obtained from {@link DataSourceHelper#inSession}. Prepared statements are
+ * cached for the lifetime of the session and reused by calls with the same SQL text.
+ * <p>
+ * In a transactional session, operations that do not accept a handler throw {@link UncheckedSQLException} when a
+ * statement fails instead of returning a default result, so the failure reaches the work and the transaction is
+ * rolled back. Operations accepting a handler leave the decision to the handler.
+ * <p>
+ * Session is not thread safe and must not be used after the work it was passed to completes.
+ *
+ * @author Dariusz Szwarc
+ */
+public final class Session implements Operations {
+
+    /**
+     * Connector that provided the connection.
+     */
+    private final Connector parent;
+
+    /**
+     * Connection bound to the session.
+     */
+    private final Connection connection;
+
+    /**
+     * Connector that caches prepared statements.
+     */
+    private final SessionConnector connector;
+
+    /**
+     * Operations performed using the bound connection.
+     */
+    private final DataSourceHelper operations;
+
+    /**
+     * Whether the session is transactional.
+     */
+    private final boolean transactional;
+
+    /**
+     * Whether the transaction was completed.
+     */
+    private boolean completed;
+
+    /**
+     * Creates instance of Session.
+     *
+     * @param parent             Connector that provides the connection.
+     * @param listener           Listener notified about executed queries. May be null.
+     * @param tuner              Tuner of fetch size of queries.
+     * @param transactional      Whether the session is transactional.
+     * @param statementCacheSize Maximum number of cached prepared statements.
+     * @throws SQLException When connection can not be obtained or prepared for transaction.
+     */
+    Session(Connector parent, QueryListener listener, FetchSizeTuner tuner, boolean transactional,
+            int statementCacheSize) throws SQLException {
+        this.parent = parent;
+        this.connection = parent.acquire();
+        try {
+            this.connector = new SessionConnector(connection, statementCacheSize);
+            if (transactional) {
+                connection.setAutoCommit(false);
+            }
+        } catch (SQLException | RuntimeException e) {
+            parent.release(connection);
+            throw e;
+        }
+        this.operations = new DataSourceHelper(connector, listener, tuner, transactional);
+        this.transactional = transactional;
+    }
+
+    /**
+     * @return Whether the session is transactional.
+     */
+    boolean transactional() {
+        return transactional;
+    }
+
+    /**
+     * @return Number of calls that reused a cached prepared statement.
+     */
+    public long statementCacheHits() {
+        return connector.hits();
+    }
+
+    /**
+     * @return Number of calls that had to prepare a statement.
+     */
+    public long statementCacheMisses() {
+        return connector.misses();
+    }
+
+    /**
+     * Commits changes made so far in a transactional session.
+     *
+     * @throws UncheckedSQLException When the transaction can not be committed.
+     */
+    public void commit() {
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Rolls back changes made so far in a transactional session.
+     *
+     * @throws UncheckedSQLException When the transaction can not be rolled back.
+     */
+    public void rollback() {
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            throw new UncheckedSQLException(e);
+        }
+    }
+
+    /**
+     * Commits the transaction of a transactional session after its work completed.
+     *
+     * @throws SQLException When the transaction can not be committed.
+     */
+    void complete() throws SQLException {
+        if (transactional) {
+            connection.commit();
+        }
+        completed = true;
+    }
+
+    /**
+     * Closes cached statements and releases the connection. Uncompleted transaction is rolled back, even when cached
+     * statements can not be closed.
+     *
+     * @throws SQLException When the session can not be closed. Later failures are suppressed by the first one.
+     */
+    void close() throws SQLException {
+        SQLException failure = null;
+        try {
+            connector.clear();
+        } catch (SQLException e) {
+            failure = e;
+        }
+        try {
+            if (transactional) {
+                if (!completed) {
+                    connection.rollback();
+                }
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            if (failure == null) {
+                failure = e;
+            } else {
+                failure.addSuppressed(e);
+            }
+        } finally {
+            parent.release(connection);
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper) {
+        return operations.fetchOne(sql, mapper);
+    }
+
+    @Override
+    public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper, Object parameter) {
+        return operations.fetchOne(sql, mapper, parameter);
+    }
+
+    @Override
+    public <T> Optional<T> fetchOne(String sql, RowMapper<T> mapper, Object... parameters) {
+        return operations.fetchOne(sql, mapper, parameters);
+    }
+
+    @Override
+    public <T> List<T> fetchMany(String sql, RowMapper<T> mapper) {
+        return operations.fetchMany(sql, mapper);
+    }
+
+    @Override
+    public <T> List<T> fetchMany(String sql, RowMapper<T> mapper, Object parameter) {
+        return operations.fetchMany(sql, mapper, parameter);
+    }
+
+    @Override
+    public <T> List<T> fetchMany(String sql, RowMapper<T> mapper, Object... parameters) {
+        return operations.fetchMany(sql, mapper, parameters);
+    }
+
+    @Override
+    public <T> Stream<T> fetchStream(String sql, RowMapper<T> mapper, Object... parameters) {
+        return operations.fetchStream(sql, mapper, parameters);
+    }
+
+    @Override
+    public <T> Stream<T> fetchStream(String sql, Setter setter, RowMapper<T> mapper, int fetchSize,
+                                     Handler<Stream<T>> handler) {
+        return operations.fetchStream(sql, setter, mapper, fetchSize, handler);
+    }
+
+    @Override
+    public <T> T fetch(String sql, Setter setter, Extractor<T> extractor, Handler<T> handler) {
+        return operations.fetch(sql, setter, extractor, handler);
+    }
+
+    @Override
+    public int update(String sql) {
+        return operations.update(sql);
+    }
+
+    @Override
+    public int update(String sql, Object parameter) {
+        return operations.update(sql, parameter);
+    }
+
+    @Override
+    public int update(String sql, Object... parameters) {
+        return operations.update(sql, parameters);
+    }
+
+    @Override
+    public int update(String sql, Setter setter, Handler<Integer> handler) {
+        return operations.update(sql, setter, handler);
+    }
+
+    @Override
+    public int[] updateBatch(String sql, Iterable<Object[]> parameters, int batchSize) {
+        return operations.updateBatch(sql, parameters, batchSize);
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Iterable<T> items, Binder<T> binder, int batchSize,
+                                 Handler<Integer> handler) {
+        return operations.updateBatch(sql, items, binder, batchSize, handler);
+    }
+
+    @Override
+    public <T> int[] updateBatch(String sql, Stream<T> items, Binder<T> binder, int batchSize,
+                                 Handler<Integer> handler) {
+        return operations.updateBatch(sql, items, binder, batchSize, handler);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Connector bound to a single connection, that keeps prepared statements in a least recently used cache keyed by SQL
+ * text. Statements that are in use are removed from the cache, so a statement is never shared by two simultaneously
+ * open results.
+ *
+ * @author Dariusz Szwarc
+ */
+final class SessionConnector implements Connector {
+
+    /**
+     * Connection that is used by every operation.
+     */
+    private final Connection connection;
+
+    /**
+     * Maximum number of cached statements.
+     */
+    private final int cacheSize;
+
+    /**
+     * Cached statements, in access order.
+     */
+    private final LinkedHashMap<String, PreparedStatement> cache;
+
+    /**
+     * Number of statements obtained from the cache.
+     */
+    private long hits;
+
+    /**
+     * Number of statements that had to be prepared.
+     */
+    private long misses;
+
+    /**
+     * Creates instance of SessionConnector.
+     *
+     * @param connection Connection that is used by every operation.
+     * @param cacheSize  Maximum number of cached statements. Zero disables caching.
+     */
+    SessionConnector(Connection connection, int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size must not be negative: " + cacheSize);
+        }
+        this.connection = connection;
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public Connection acquire() {
+        return connection;
+    }
+
+    @Override
+    public void release(Connection connection) {
+        // connection is released when session is closed
+    }
+
+    @Override
+    public PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        var statement = cache.remove(sql);
+        if (statement != null) {
+            hits++;
+            return statement;
+        }
+        misses++;
+        return connection.prepareStatement(sql);
+    }
+
+    @Override
+    public void release(String sql, PreparedStatement statement) throws SQLException {
+        if (cacheSize == 0) {
+            statement.close();
+            return;
+        }
+        statement.clearParameters();
+        var previous = cache.put(sql, statement);
+        if (previous != null) {
+            previous.close();
+        }
+        if (cache.size() > cacheSize) {
+            var eldest = cache.entrySet().iterator();
+            Map.Entry<String, PreparedStatement> entry = eldest.next();
+            eldest.remove();
+            entry.getValue().close();
+        }
+    }
+
+    /**
+     * @return Number of statements obtained from the cache.
+     */
+    long hits() {
+        return hits;
+    }
+
+    /**
+     * @return Number of statements that had to be prepared.
+     */
+    long misses() {
+        return misses;
+    }
+
+    /**
+     * Closes all cached statements.
+     *
+     * @throws SQLException When any of the statements can not be closed.
+     */
+    void clear() throws SQLException {
+        SQLException failure = null;
+        for (var statement : cache.values()) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        cache.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,493 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * List of rows that keeps rows on the heap up to a threshold and spills all of them to a memory-mapped temporary file
+ * beyond it. Spilled rows are decoded on every access. The list is read only and has to be closed to delete the file.
+ *
+ * @param <T> Type of rows.
+ * @author Dariusz Szwarc
+ * @see Extractor#extractSpilling(RowMapper, RowCodec, int)
+ */
+public final class SpillingList<T> extends AbstractList<T> implements RandomAccess, AutoCloseable {
+
+    /**
+     * Logger.
+     */
+    private static final Logger log = LoggerFactory.getLogger(SpillingList.class);
+
+    /**
+     * Maximum size of a single mapped region.
+     */
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    /**
+     * Size of the direct buffer of spilled rows not yet written to the file.
+     */
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Rows kept on the heap, null when rows were spilled.
+     */
+    private final List<T> rows;
+
+    /**
+     * Codec of spilled rows.
+     */
+    private final RowCodec<T> codec;
+
+    /**
+     * File holding spilled rows.
+     */
+    private final Path file;
+
+    /**
+     * Mapped regions of the file.
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Segment index by spilled row.
+     */
+    private final int[] segmentOf;
+
+    /**
+     * Offset within segment by spilled row, followed by the end of the last row.
+     */
+    private final int[] offsets;
+
+    /**
+     * Number of spilled rows.
+     */
+    private final int size;
+
+    /**
+     * Creates instance of SpillingList.
+     *
+     * @param rows      Rows kept on the heap, null when rows were spilled.
+     * @param codec     Codec of spilled rows.
+     * @param file      File holding spilled rows.
+     * @param segments  Mapped regions of the file.
+     * @param segmentOf Segment index by spilled row.
+     * @param offsets   Offset within segment by spilled row.
+     * @param size      Number of spilled rows.
+     */
+    private SpillingList(List<T> rows, RowCodec<T> codec, Path file, MappedByteBuffer[] segments, int[] segmentOf,
+                         int[] offsets, int size) {
+        this.rows = rows;
+        this.codec = codec;
+        this.file = file;
+        this.segments = segments;
+        this.segmentOf = segmentOf;
+        this.offsets = offsets;
+        this.size = size;
+    }
+
+    /**
+     * @param <T> Type of rows.
+     * @return Empty list.
+     */
+    static <T> SpillingList<T> empty() {
+        return new SpillingList<>(List.of(), null, null, null, null, null, 0);
+    }
+
+    /**
+     * Reads all remaining rows of result set.
+     *
+     * @param resultSet       Result set positioned at the first row to be read.
+     * @param mapper          Mapper of rows.
+     * @param codec           Codec of spilled rows.
+     * @param maxRowsInMemory Number of rows kept on the heap before all rows are spilled to disk.
+     * @param <T>             Type of rows.
+     * @return List of rows.
+     * @throws SQLException when result set raises an exception during processing.
+     */
+    static <T> SpillingList<T> read(ResultSet resultSet, RowMapper<T> mapper, RowCodec<T> codec, int maxRowsInMemory)
+            throws SQLException {
+        var bound = mapper.bind(resultSet);
+        List<T> rows = new ArrayList<>();
+        do {
+            if (rows.size() == maxRowsInMemory) {
+                return spill(resultSet, bound, codec, rows);
+            }
+            rows.add(bound.map(resultSet));
+        } while (resultSet.next());
+        return new SpillingList<>(rows, codec, null, null, null, null, rows.size());
+    }
+
+    /**
+     * Writes rows read so far and all remaining rows of result set to a temporary file and maps it.
+     *
+     * @param resultSet Result set positioned at the first row not read yet.
+     * @param mapper    Mapper of rows.
+     * @param codec     Codec of spilled rows.
+     * @param read      Rows read so far.
+     * @param <T>       Type of rows.
+     * @return List of rows.
+     * @throws SQLException when result set raises an exception during processing.
+     */
+    private static <T> SpillingList<T> spill(ResultSet resultSet, RowMapper<T> mapper, RowCodec<T> codec,
+                                             List<T> read) throws SQLException {
+        Path file = null;
+        try {
+            file = Files.createTempFile("jdbc-helper-", ".rows");
+            log.debug("Spilling rows to {}", file);
+            var writer = new Writer<>(codec, file);
+            try (writer) {
+                for (T row : read) {
+                    writer.write(row);
+                }
+                read.clear();
+                do {
+                    writer.write(mapper.map(resultSet));
+                } while (resultSet.next());
+                writer.finish();
+            }
+            return writer.map();
+        } catch (IOException e) {
+            delete(file);
+            throw new UncheckedIOException(e);
+        } catch (SQLException | RuntimeException | Error e) {
+            delete(file);
+            throw e;
+        }
+    }
+
+    @Override
+    public T get(int index) {
+        if (rows != null) {
+            return rows.get(index);
+        }
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        var segment = segments[segmentOf[index]].duplicate();
+        int end = index + 1 < size && segmentOf[index + 1] == segmentOf[index] ? offsets[index + 1] : segment.limit();
+        segment.position(offsets[index]).limit(end);
+        try {
+            return codec.read(new DataInputStream(new BufferInputStream(segment)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Whether the rows were spilled to disk.
+     */
+    public boolean isSpilled() {
+        return rows == null;
+    }
+
+    /**
+     * Deletes the file holding spilled rows. The file may be left until the buffers mapping it are garbage
+     * collected on platforms that do not allow to delete mapped files.
+     */
+    @Override
+    public void close() {
+        delete(file);
+    }
+
+    /**
+     * Deletes the file, falling back to deletion at exit.
+     *
+     * @param file Deleted file, may be null.
+     */
+    private static void delete(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete {}, it will be deleted at exit", file, e);
+            file.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Writer of spilled rows.
+     *
+     * @param <T> Type of rows.
+     */
+    private static final class Writer<T> implements AutoCloseable {
+
+        /**
+         * Codec of rows.
+         */
+        private final RowCodec<T> codec;
+
+        /**
+         * File holding rows.
+         */
+        private final Path file;
+
+        /**
+         * Channel writing the file.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Output buffering encoded rows and writing them to the channel.
+         */
+        private final ChannelOutput output;
+
+        /**
+         * Output encoding rows.
+         */
+        private final DataOutputStream out;
+
+        /**
+         * Start of every segment in the file, followed by the end of the file.
+         */
+        private long[] segmentStarts = new long[]{0, 0};
+
+        /**
+         * Number of segments.
+         */
+        private int segments = 1;
+
+        /**
+         * Segment index by row.
+         */
+        private int[] segmentOf = new int[64];
+
+        /**
+         * Offset within segment by row.
+         */
+        private int[] offsets = new int[64];
+
+        /**
+         * Number of rows.
+         */
+        private int size;
+
+        /**
+         * Creates instance of Writer.
+         *
+         * @param codec Codec of rows.
+         * @param file  File holding rows.
+         * @throws IOException when the file could not be opened.
+         */
+        Writer(RowCodec<T> codec, Path file) throws IOException {
+            this.codec = codec;
+            this.file = file;
+            this.channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            this.output = new ChannelOutput(channel);
+            this.out = new DataOutputStream(output);
+        }
+
+        /**
+         * Appends the row. The row is encoded into the direct buffer, which is written to the file only when it fills
+         * up, and a new segment is started at the row when it does not fit the current one.
+         *
+         * @param row Appended row.
+         * @throws IOException when the file could not be written.
+         */
+        void write(T row) throws IOException {
+            long start = output.position;
+            codec.write(row, out);
+            long length = output.position - start;
+            if (length > SEGMENT_SIZE) {
+                throw new IOException("Encoded row of " + length + " bytes does not fit a segment");
+            }
+            if (output.position - segmentStarts[segments - 1] > SEGMENT_SIZE) {
+                if (segments + 1 == segmentStarts.length) {
+                    segmentStarts = Arrays.copyOf(segmentStarts, segmentStarts.length * 2);
+                }
+                segmentStarts[segments++] = start;
+            }
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, Math.multiplyExact(size, 2));
+                segmentOf = Arrays.copyOf(segmentOf, offsets.length);
+            }
+            segmentOf[size] = segments - 1;
+            offsets[size++] = (int) (start - segmentStarts[segments - 1]);
+        }
+
+        /**
+         * Writes rows remaining in the buffer to the file.
+         *
+         * @throws IOException when the file could not be written.
+         */
+        void finish() throws IOException {
+            output.drain();
+        }
+
+        /**
+         * Maps written file.
+         *
+         * @return List of written rows.
+         * @throws IOException when the file could not be mapped.
+         */
+        SpillingList<T> map() throws IOException {
+            segmentStarts[segments] = output.position;
+            var mapped = new MappedByteBuffer[segments];
+            try (var reader = FileChannel.open(file, StandardOpenOption.READ)) {
+                for (int i = 0; i < segments; i++) {
+                    mapped[i] = reader.map(FileChannel.MapMode.READ_ONLY, segmentStarts[i],
+                            segmentStarts[i + 1] - segmentStarts[i]);
+                }
+            }
+            return new SpillingList<>(null, codec, file, mapped, Arrays.copyOf(segmentOf, size),
+                    Arrays.copyOf(offsets, size), size);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Output collecting bytes in a direct buffer and writing them to a channel when the buffer fills up.
+     */
+    private static final class ChannelOutput extends OutputStream {
+
+        /**
+         * Channel receiving the bytes.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Buffer of bytes not yet written to the channel.
+         */
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+
+        /**
+         * Number of bytes written to the output.
+         */
+        private long position;
+
+        /**
+         * Creates instance of ChannelOutput.
+         *
+         * @param channel Channel receiving the bytes.
+         */
+        ChannelOutput(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) value);
+            position++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    drain();
+                }
+                int chunk = Math.min(buffer.remaining(), length);
+                buffer.put(bytes, offset, chunk);
+                offset += chunk;
+                length -= chunk;
+                position += chunk;
+            }
+        }
+
+        /**
+         * Writes buffered bytes to the channel.
+         *
+         * @throws IOException when the channel raises an exception.
+         */
+        void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Input reading remaining bytes of a buffer.
+     */
+    private static final class BufferInputStream extends InputStream {
+
+        /**
+         * Read buffer.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * Creates instance of BufferInputStream.
+         *
+         * @param buffer Read buffer.
+         */
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package dev.siny.utils.jdbc;
+
+/**
+ * Scanner of SQL text that recognizes parts in which placeholders and parameter names must not be looked for: quoted
+ * literals, quoted identifiers, line comments and block comments.
+ *
+ * @author Dariusz Szwarc
+ */
+final class SqlScanner {
+
+    /**
+     * Prevents instantiation of utility class.
+     */
+    private SqlScanner() {
+    }
+
+    /**
+     * Finds end of a quoted literal, quoted identifier or comment starting at provided index. Doubled quotes are
+     * handled as two adjacent literals and an unterminated part extends to the end of the text.
+     *
+     * @param sql   SQL text.
+     * @param start Index of the first character of a possible quoted part or comment.
+     * @return Index following the quoted part or comment, or start when none starts at the index.
+     */
+    static int skip(String sql, int start) {
+        char c = sql.charAt(start);
+        if (c == '\'' || c == '"') {
+            int end = sql.indexOf(c, start + 1);
+            return end < 0 ? sql.length() : end + 1;
+        }
+        if (c == '-' && sql.startsWith("--", start)) {
+            int end = sql.indexOf('\n', start);
+            return end < 0 ? sql.length() : end;
+        }
+        if (c == '/' && sql.startsWith("/*", start)) {
+            int end = sql.indexOf("*/", start + 2);
+            return end < 0 ? sql.length() : end + 2;
+        }
+        return start;
+    }
+}
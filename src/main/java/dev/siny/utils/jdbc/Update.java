@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020 Dariusz Szwarc
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package dev.siny.utils.jdbc;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Update with named parameters, parsed once and executed many times.
+ * <p>
+ * Like operations that do not accept a handler, a failed update returns zero affected rows, unless it is executed by
+ * a transactional {@link Session}, where it throws {@link UncheckedSQLException}, so the transaction is rolled back.
+ * <p>
+ * Update is immutable and may be shared by threads.
+ *
+ * @author Dariusz Szwarc
+ * @see Query
+ */
+public final class Update {
+
+    /**
+     * Handler returning zero affected rows.
+     */
+    private static final Handler<Integer> RETURNING = Handler.returning(e -> 0);
+
+    /**
+     * Handler throwing {@link UncheckedSQLException}.
+     */
+    private static final Handler<Integer> THROWING = Handler.throwing(UncheckedSQLException::new);
+
+    /**
+     * Operations used to execute the update.
+     */
+    private final Operations operations;
+
+    /**
+     * Parsed statement.
+     */
+    private final NamedStatement statement;
+
+    /**
+     * Default handler of failure.
+     */
+    private final Handler<Integer> handler;
+
+    /**
+     * Creates instance of Update.
+     *
+     * @param operations Operations used to execute the update.
+     * @param sql        SQL update with named parameters.
+     */
+    private Update(Operations operations, String sql) {
+        this.operations = requireNonNull(operations, "operations");
+        this.statement = new NamedStatement(requireNonNull(sql, "sql"));
+        this.handler = operations instanceof Session && ((Session) operations).transactional() ? THROWING : RETURNING;
+    }
+
+    /**
+     * Creates an Update.
+     *
+     * @param operations Operations that will be used to execute the update.
+     * @param sql        SQL update with named parameters, e.g. {@code UPDATE item SET name = :name WHERE id = :id}.
+     * @return New Update object.
+     */
+    public static Update of(Operations operations, String sql) {
+        return new Update(operations, sql);
+    }
+
+    /**
+     * Creates new parameters of the update. Parameters should be reused by subsequent executions.
+     *
+     * @return New Parameters object.
+     */
+    public Parameters parameters() {
+        return new Parameters(statement);
+    }
+
+    /**
+     * Executes the update.
+     *
+     * @param parameters Parameters of the update, created by {@link #parameters()}.
+     * @return Number of affected rows.
+     * @throws UncheckedSQLException When the update fails in a transactional session.
+     */
+    public int execute(Parameters parameters) {
+        return execute(parameters, handler);
+    }
+
+    /**
+     * Executes the update.
+     *
+     * @param parameters Parameters of the update, created by {@link #parameters()}.
+     * @param handler    Handler of exceptions raised during execution of update.
+     * @return Number of affected rows.
+     */
+    public int execute(Parameters parameters, Handler<Integer> handler) {
+        return operations.update(statement.sql(), parameters.checkOwner(statement), handler);
+    }
+
+    /**
+     * @return SQL update with named parameters replaced by positional placeholders.
+     */
+    public String sql() {
+        return statement.sql();
+    }
+}